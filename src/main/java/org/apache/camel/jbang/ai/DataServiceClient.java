@@ -1,61 +1,106 @@
 package org.apache.camel.jbang.ai;
 
-import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import java.io.IOException;
+import java.util.function.Supplier;
+
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import org.apache.camel.catalog.CamelCatalog;
 import org.apache.camel.catalog.DefaultCamelCatalog;
 import org.apache.camel.jbang.ai.data.CatalogProcessor;
 import org.apache.camel.jbang.ai.data.ComponentCatalogProcessor;
 import org.apache.camel.jbang.ai.data.DataFormatCatalogProcessor;
 import org.apache.camel.jbang.ai.data.EipsCatalogProcessor;
+import org.apache.camel.jbang.ai.data.GenerationJournal;
 import org.apache.camel.jbang.ai.data.LanguageCatalogProcessor;
 import org.apache.camel.jbang.ai.data.BeansCatalogProcessor;
+import org.apache.camel.jbang.ai.util.ModelUtil;
+import org.apache.camel.jbang.ai.util.cache.CachedStreamingChatModel;
+import org.apache.camel.jbang.ai.util.cache.ResponseCache;
+import org.apache.camel.jbang.ai.util.steps.AdaptiveLimiter;
 
+import static org.apache.camel.jbang.ai.util.ModelUtil.buildJsonModel;
 import static org.apache.camel.jbang.ai.util.ModelUtil.buildModel;
 
 public class DataServiceClient {
+    private static final int INITIAL_CONCURRENCY = 4;
 
     private final String url;
     private final String apiKey;
     private final String modelName;
     private final String dataType;
     private final int startFrom;
+    private final int concurrency;
+    private final boolean adaptiveConcurrency;
+    private final int batchSize;
+    private final boolean journal;
+    private final long responseCacheSize;
 
-    public DataServiceClient(String url, String apiKey, String modelName, String dataType, int startFrom) {
+    public DataServiceClient(String url, String apiKey, String modelName, String dataType, int startFrom,
+            int concurrency, boolean adaptiveConcurrency, int batchSize, boolean journal, long responseCacheSize) {
         this.url = url;
         this.apiKey = apiKey;
         this.modelName = modelName;
         this.dataType = dataType;
         this.startFrom = startFrom;
+        this.concurrency = concurrency;
+        this.adaptiveConcurrency = adaptiveConcurrency;
+        this.batchSize = batchSize;
+        this.journal = journal;
+        this.responseCacheSize = responseCacheSize;
     }
 
-    public int run() throws InterruptedException {
-        OpenAiStreamingChatModel chatModel = buildModel(url, apiKey, modelName);
+    public int run() throws InterruptedException, IOException {
+        if (!journal) {
+            buildCatalogProcessor(null).process(startFrom);
+            return 0;
+        }
 
-        createSyntheticQuestions(chatModel);
+        try (GenerationJournal generationJournal = GenerationJournal.open(GenerationJournal.defaultPath(dataType))) {
+            final CatalogProcessor catalogProcessor = buildCatalogProcessor(generationJournal);
+            // The options journaled with another model or other prompts are generated again
+            generationJournal.checkSettings(String.join(";", ModelUtil.describeModel(modelName),
+                    ModelUtil.describeJsonModel(modelName), "prompts=" + catalogProcessor.describePrompts()));
 
-        return 0;
-    }
+            catalogProcessor.process(startFrom);
 
-    private void createSyntheticQuestions(OpenAiStreamingChatModel chatModel) throws InterruptedException {
-        CatalogProcessor catalogProcessor = buildCatalogProcessor();
+            generationJournal.delete();
+        }
 
-        catalogProcessor.process(startFrom);
+        return 0;
     }
 
-    private CatalogProcessor buildCatalogProcessor() {
+    private CatalogProcessor buildCatalogProcessor(GenerationJournal generationJournal) {
         final CamelCatalog catalog = new DefaultCamelCatalog(true);
-        final OpenAiStreamingChatModel chatModel = buildModel(url, apiKey, modelName);
+        final ResponseCache responseCache = responseCacheSize > 0
+                ? ResponseCache.open(ResponseCache.DEFAULT_DIRECTORY, responseCacheSize * 1024 * 1024)
+                : null;
+        final Supplier<StreamingChatLanguageModel> chatModel = () -> cached(buildModel(url, apiKey, modelName),
+                ModelUtil.describeModel(modelName), responseCache);
+        final Supplier<StreamingChatLanguageModel> jsonChatModel = () -> cached(
+                buildJsonModel(url, apiKey, modelName), ModelUtil.describeJsonModel(modelName), responseCache);
+        // Starts low and probes for the capacity of the endpoint, up to the concurrency
+        final AdaptiveLimiter limiter = adaptiveConcurrency
+                ? new AdaptiveLimiter(Math.min(concurrency, INITIAL_CONCURRENCY), concurrency)
+                : null;
 
         return switch (dataType) {
-            case "dataformat" -> new DataFormatCatalogProcessor(chatModel, catalog);
-            case "language" -> new LanguageCatalogProcessor(chatModel, catalog);
-            case "beans" -> new BeansCatalogProcessor(chatModel, catalog);
-            case "component" -> new ComponentCatalogProcessor(chatModel, catalog);
-            case "eip" -> new EipsCatalogProcessor(chatModel, catalog);
+            case "dataformat" -> new DataFormatCatalogProcessor(chatModel, jsonChatModel, catalog, concurrency, limiter,
+                    batchSize, generationJournal);
+            case "language" -> new LanguageCatalogProcessor(chatModel, jsonChatModel, catalog, concurrency, limiter,
+                    batchSize, generationJournal);
+            case "beans" -> new BeansCatalogProcessor(chatModel, jsonChatModel, catalog, concurrency, limiter,
+                    batchSize, generationJournal);
+            case "component" -> new ComponentCatalogProcessor(chatModel, jsonChatModel, catalog, concurrency, limiter,
+                    batchSize, generationJournal);
+            case "eip" -> new EipsCatalogProcessor(chatModel, jsonChatModel, catalog, concurrency, limiter,
+                    batchSize, generationJournal);
 
             default -> throw new RuntimeException("Invalid data type: " + dataType);
         };
     }
 
-
+    private static StreamingChatLanguageModel cached(
+            StreamingChatLanguageModel model, String settings, ResponseCache responseCache) {
+        return responseCache != null ? new CachedStreamingChatModel(model, settings, responseCache) : model;
+    }
 }
@@ -11,7 +11,8 @@ public class ExplainPlugin implements Plugin {
     public void customize(CommandLine commandLine, CamelJBangMain main) {
         var cmd = new picocli.CommandLine(new ExplainCommand(main))
                 .addSubcommand("load", new LoadCommand(main))
-                .addSubcommand("whatis", new WhatIsCommand(main));
+                .addSubcommand("whatis", new WhatIsCommand(main))
+                .addSubcommand("serve", new ServeCommand(main));
 
         commandLine.addSubcommand("explain", cmd);
     }
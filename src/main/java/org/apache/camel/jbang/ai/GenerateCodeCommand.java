@@ -3,6 +3,10 @@ package org.apache.camel.jbang.ai;
 import org.apache.camel.dsl.jbang.core.commands.CamelCommand;
 import org.apache.camel.dsl.jbang.core.commands.CamelJBangMain;
 import org.apache.camel.jbang.ai.generate.GenerateCodeServiceClient;
+import org.apache.camel.jbang.ai.rerank.Reranker;
+import org.apache.camel.jbang.ai.store.VectorStoreConfig;
+import org.apache.camel.jbang.ai.util.ContextPacker;
+import org.apache.camel.jbang.ai.util.RetrievalPolicy;
 import picocli.CommandLine;
 
 @CommandLine.Command(name = "code",
@@ -21,6 +25,50 @@ public class GenerateCodeCommand extends CamelCommand {
             "--collection-name" }, description = "The Qdrant collection name", defaultValue = "camel-jbang", arity = "1..1", required = true)
     private String collectionName;
 
+    @CommandLine.Option(names = {
+            "--store" }, description = "Where the embeddings are stored [qdrant, local]", defaultValue = "qdrant", arity = "0..1")
+    private String store;
+
+    @CommandLine.Option(names = {
+            "--store-path" }, description = "The local store directory (defaults to ~/.camel/explain/store/<collection name>)", arity = "0..1")
+    private String storePath;
+
+    @CommandLine.Option(names = {
+            "--max-results" }, description = "The maximum number of options to retrieve", defaultValue = "6", arity = "0..1")
+    private int maxResults;
+
+    @CommandLine.Option(names = {
+            "--min-score" }, description = "The minimum relevance score of a retrieved option", defaultValue = "0.65", arity = "0..1")
+    private double minScore;
+
+    @CommandLine.Option(names = {
+            "--score-window" }, description = "How far below the best score a retrieved option can be (0 to always retrieve the maximum number of options)", defaultValue = "0.15", arity = "0..1")
+    private double scoreWindow;
+
+    @CommandLine.Option(names = {
+            "--mmr-lambda" }, description = "The weight of relevance versus diversity when selecting the retrieved options, between 0 and 1 (1 to disable diversity)", defaultValue = "0.5", arity = "0..1")
+    private double mmrLambda;
+
+    @CommandLine.Option(names = {
+            "--hybrid-search" }, description = "Merge the vector search with a lexical (BM25) search over the catalog", defaultValue = "false", arity = "0..1")
+    private boolean hybridSearch;
+
+    @CommandLine.Option(names = {
+            "--reranker-model" }, description = "An ONNX cross-encoder to rerank the retrieved options with, with its tokenizer.json next to it (disabled by default, ignored with --server-url)", arity = "0..1")
+    private String rerankerModel;
+
+    @CommandLine.Option(names = {
+            "--rerank-candidates" }, description = "How many options to retrieve for the reranker", defaultValue = "20", arity = "0..1")
+    private int rerankCandidates;
+
+    @CommandLine.Option(names = {
+            "--rerank-budget" }, description = "How many milliseconds the reranking of a question can take", defaultValue = "250", arity = "0..1")
+    private long rerankBudget;
+
+    @CommandLine.Option(names = {
+            "--context-token-budget" }, description = "The maximum number of tokens of retrieved context to add to the prompt (0 for no limit)", defaultValue = "1024", arity = "0..1")
+    private int contextTokenBudget;
+
     @CommandLine.Option(names = {"--url"}, description = "The API URL", defaultValue = "http://localhost:8000/v1/", arity = "0..1", required = true)
     private String url;
 
@@ -34,6 +82,10 @@ public class GenerateCodeCommand extends CamelCommand {
             defaultValue = "You are a coding assistant specialized in Apache Camel", arity = "0..1")
     private String systemPrompt;
 
+    @CommandLine.Option(names = {"--server-url"}, description = "The URL of a running 'serve' process to forward the request to (i.e.: http://localhost:8765). The system prompt, the model name, the retrieval options and the context token budget are forwarded with it, but the server uses its own API, store and reranker",
+            arity = "0..1")
+    private String serverUrl;
+
     @CommandLine.Parameters(paramLabel = "description", description = "Please explain what the code has to do (also known as 'user prompt')")
     private String description;
 
@@ -43,9 +95,17 @@ public class GenerateCodeCommand extends CamelCommand {
 
     @Override
     public Integer doCall() throws Exception {
+        if (serverUrl != null && rerankerModel != null) {
+            System.err.printf("Ignoring --reranker-model: the server at %s uses its own reranker%n", serverUrl);
+        }
+
         GenerateCodeServiceClient
                 serviceClient = new GenerateCodeServiceClient(url, apiKey, modelName, systemPrompt, description,
-                host, port, collectionName);
+                new VectorStoreConfig(store, host, port, collectionName, storePath),
+                new RetrievalPolicy(maxResults, minScore, scoreWindow, mmrLambda, hybridSearch)
+                        .withReranker(serverUrl == null
+                                ? Reranker.of(rerankerModel, rerankCandidates, rerankBudget) : null),
+                new ContextPacker(contextTokenBudget), serverUrl);
 
         return serviceClient.run();
     }
@@ -1,115 +1,210 @@
 package org.apache.camel.jbang.ai;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
-import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
-import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.qdrant.QdrantEmbeddingStore;
 import io.qdrant.client.QdrantClient;
-import io.qdrant.client.QdrantGrpcClient;
 import io.qdrant.client.grpc.Collections;
 import org.apache.camel.catalog.CamelCatalog;
 import org.apache.camel.catalog.DefaultCamelCatalog;
+import org.apache.camel.jbang.ai.load.CollectionLayout;
+import org.apache.camel.jbang.ai.load.LoadItem;
+import org.apache.camel.jbang.ai.load.LoadJournal;
+import org.apache.camel.jbang.ai.load.LocalStoreWriter;
+import org.apache.camel.jbang.ai.load.LoadPipeline;
+import org.apache.camel.jbang.ai.load.QdrantWriter;
+import org.apache.camel.jbang.ai.load.VectorWriter;
+import org.apache.camel.jbang.ai.store.VectorStoreConfig;
+import org.apache.camel.jbang.ai.util.CatalogUtil;
+import org.apache.camel.jbang.ai.util.ResourceRegistry;
+import org.apache.camel.jbang.ai.util.cache.AnswerCache;
 import org.apache.camel.tooling.model.BaseOptionModel;
 import org.apache.camel.tooling.model.ComponentModel;
 
 public final class Loader {
 
-    private final String host;
-    private final int port;
-    private final String collectionName;
+    private final VectorStoreConfig storeConfig;
     private final boolean skipCreateCollection;
+    private final int batchSize;
+    private final int embedThreads;
+    private final int writers;
+    private final int embeddingCacheSize;
+    private final boolean resume;
+    private final CollectionLayout collectionLayout;
+    private final int maxInFlight;
 
     private static Collections.Distance distance = Collections.Distance.Cosine;
     private static int dimension = 384;
 
-    public Loader(String host, int port, String collectionName, boolean skipCreateCollection) {
-        this.host = host;
-        this.port = port;
-        this.collectionName = collectionName;
+    public Loader(VectorStoreConfig storeConfig, boolean skipCreateCollection, int batchSize,
+            int embedThreads, int writers, int embeddingCacheSize, boolean resume, CollectionLayout collectionLayout,
+            int maxInFlight) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be greater than zero: " + batchSize);
+        }
+
+        this.storeConfig = storeConfig;
         this.skipCreateCollection = skipCreateCollection;
+        this.batchSize = batchSize;
+        this.embedThreads = embedThreads;
+        this.writers = writers;
+        this.embeddingCacheSize = embeddingCacheSize;
+        this.resume = resume;
+        this.collectionLayout = collectionLayout;
+        this.maxInFlight = maxInFlight;
     }
 
-    public int load() throws ExecutionException, InterruptedException {
-        EmbeddingStore<TextSegment> embeddingStore =
-                QdrantEmbeddingStore.builder()
-                        .host(host)
-                        .port(port)
-                        .collectionName(collectionName)
-                        .build();
-
-        if (!skipCreateCollection) {
-            try (QdrantClient client = new QdrantClient(
-                    QdrantGrpcClient.newBuilder(host, port, false)
-                            .build())) {
+    public int load() throws ExecutionException, InterruptedException, IOException {
+        // The pipeline runs one batch per embedding worker, so the shared model runs on the caller thread
+        ResourceRegistry.configureEmbeddingCache(embeddingCacheSize > 0 ? embeddingCacheSize : -1);
+        EmbeddingModel embeddingModel = ResourceRegistry.embeddingModel();
+
+        // When resuming, the collection was created by the interrupted run
+        final boolean keepExisting = skipCreateCollection || resume;
+
+        final VectorWriter writer;
+        final Path journalPath;
+        if (storeConfig.isLocal()) {
+            writer = new LocalStoreWriter(storeConfig.storePath(), keepExisting, collectionLayout.hnswM(),
+                    collectionLayout.hnswEfConstruct());
+            journalPath = storeConfig.storePath().resolveSibling(storeConfig.storePath().getFileName() + ".journal");
+        } else {
+            // The client is owned by the registry, which closes it on shutdown
+            QdrantClient client = ResourceRegistry.qdrantClient(storeConfig.host(), storeConfig.port());
+            if (!keepExisting) {
                 client
-                        .createCollectionAsync(
-                                collectionName,
-                                Collections.VectorParams.newBuilder().setDistance(distance).setSize(dimension).build())
+                        .createCollectionAsync(collectionLayout.toCreateCollection(storeConfig.collectionName(),
+                                distance, dimension))
                         .get();
             }
+            // Also run on existing collections, which may predate the indexes
+            collectionLayout.createPayloadIndexes(client, storeConfig.collectionName());
+
+            writer = new QdrantWriter(client, storeConfig.collectionName(), maxInFlight);
+            journalPath = LoadJournal.defaultPath(storeConfig.host(), storeConfig.port(), storeConfig.collectionName());
+        }
+
+        try (LoadJournal journal = LoadJournal.open(journalPath, resume)) {
+            final int ret = load(writer, embeddingModel, journal);
+
+            journal.delete();
+            return ret;
         }
+    }
 
-        EmbeddingModel embeddingModel = new AllMiniLmL6V2EmbeddingModel();
+    private int load(VectorWriter writer, EmbeddingModel embeddingModel, LoadJournal journal)
+            throws ExecutionException, InterruptedException, IOException {
+        // Point IDs are derived from the option content, so points that already exist are up-to-date
+        final Set<String> existingIds = skipCreateCollection || resume ? writer.existingIds() : Set.of();
+        final Set<String> currentIds = new HashSet<>();
 
         CamelCatalog catalog = new DefaultCamelCatalog(true);
 
         final List<String> componentNames = catalog.findComponentNames();
+        final String camelVersion = catalog.getCatalogVersion();
+
+        final LoadPipeline.Writer journaledWriter =
+                (items, embeddings) -> writer.upsert(items, embeddings, journal::written);
+
+        final int loaded;
+        try (LoadPipeline pipeline = new LoadPipeline(embeddingModel, journaledWriter, embedThreads, writers)) {
+            pipeline.start();
+
+            // Options are collected across components so that both the embedding model and Qdrant receive full batches
+            List<LoadItem> batch = new ArrayList<>(batchSize);
+            for (String componentName : componentNames) {
+                final List<LoadItem> items = readComponent(catalog, componentName, camelVersion);
+
+                // The points of completed components are still current, so they must be kept out of the stale ones
+                if (journal.isCompleted(componentName)) {
+                    System.out.println("Skipping completed: " + componentName);
+                    items.forEach(item -> currentIds.add(item.id()));
+                    continue;
+                }
+
+                System.out.println("Processing: " + componentName);
+
+                int submitted = 0;
+                for (LoadItem item : items) {
+                    if (!currentIds.add(item.id()) || existingIds.contains(item.id())) {
+                        continue;
+                    }
+
+                    batch.add(item);
+                    submitted++;
+                    if (batch.size() == batchSize) {
+                        pipeline.submit(batch);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+
+                journal.expect(componentName, submitted);
+            }
 
-        for (String componentName : componentNames) {
-            System.out.println("Processing: " + componentName);
+            pipeline.submit(batch);
+            loaded = pipeline.finish();
+        }
 
-            final ComponentModel componentModel = catalog.componentModel(componentName);
-            final List<ComponentModel.ComponentOptionModel> componentOptions = componentModel.getComponentOptions();
+        // The unchanged points were written by a previous load, maybe of another catalog version
+        if (!existingIds.isEmpty()) {
+            writer.updateMetadata(CatalogUtil.METADATA_CAMEL_VERSION, camelVersion);
+        }
 
-            for (ComponentModel.ComponentOptionModel optionModel : componentOptions) {
-                loadComponentOption(componentName, optionModel, embeddingModel, embeddingStore);
-            }
+        final Set<String> staleIds = new HashSet<>(existingIds);
+        staleIds.removeAll(currentIds);
+        writer.delete(staleIds);
 
-            final List<ComponentModel.EndpointOptionModel> endpointParameterOptions1 =
-                    componentModel.getEndpointParameterOptions();
-            for (ComponentModel.EndpointOptionModel endpointParameterModel : endpointParameterOptions1) {
-                loadEndpointOption(componentName, endpointParameterModel, embeddingModel, embeddingStore);
-            }
+        writer.flush();
+
+        // The cached answers may have been generated from options that changed or no longer exist
+        if (loaded > 0 || !staleIds.isEmpty()) {
+            AnswerCache.invalidate(storeConfig.answerCachePath());
         }
+
+        System.out.printf("Loaded %d new or changed options, kept %d unchanged and removed %d stale ones in %s%n",
+                loaded, existingIds.size() - staleIds.size(), staleIds.size(), storeConfig);
         return 0;
     }
 
-    private static void loadEndpointOption(
-            String componentName, ComponentModel.EndpointOptionModel endpointParameterModel, EmbeddingModel embeddingModel,
-            EmbeddingStore<TextSegment> embeddingStore) {
-        final String data = toEmbeddableText(componentName, endpointParameterModel);
-
-        TextSegment segment1 = TextSegment.from(data);
-        Embedding embedding1 = embeddingModel.embed(segment1).content();
-        embeddingStore.add(embedding1, segment1);
-    }
+    /**
+     * Reads the options of a component as they are loaded
+     * @param catalog the catalog
+     * @param componentName the component name
+     * @param camelVersion the catalog version
+     * @return the options
+     */
+    public static List<LoadItem> readComponent(CamelCatalog catalog, String componentName, String camelVersion) {
+        final ComponentModel componentModel = catalog.componentModel(componentName);
+        final List<LoadItem> items = new ArrayList<>();
+
+        final List<ComponentModel.ComponentOptionModel> componentOptions = componentModel.getComponentOptions();
+        for (ComponentModel.ComponentOptionModel optionModel : componentOptions) {
+            items.add(toLoadItem(componentName, "component", optionModel, camelVersion));
+        }
 
-    private static void loadComponentOption(
-            String componentName, ComponentModel.ComponentOptionModel optionModel, EmbeddingModel embeddingModel,
-            EmbeddingStore<TextSegment> embeddingStore) {
-        final String data = toEmbeddableText(componentName, optionModel);
+        final List<ComponentModel.EndpointOptionModel> endpointParameterOptions =
+                componentModel.getEndpointParameterOptions();
+        for (ComponentModel.EndpointOptionModel endpointParameterModel : endpointParameterOptions) {
+            items.add(toLoadItem(componentName, "endpoint", endpointParameterModel, camelVersion));
+        }
 
-        TextSegment segment1 = TextSegment.from(data);
-        Embedding embedding1 = embeddingModel.embed(segment1).content();
-        embeddingStore.add(embedding1, segment1);
+        return items;
     }
 
-    private static String toEmbeddableText(String componentName, BaseOptionModel optionModel) {
-        SimpleRequestBuilder request = new SimpleRequestBuilder();
-
-        request.append("component", componentName)
-                .append("option", optionModel.getName())
-                .append("description", optionModel.getDescription())
-                .append("defaultValue", optionModel.getDefaultValue())
-                .append("type", optionModel.getType())
-                .append("required", optionModel.isRequired())
-                .append("groups", optionModel.getGroup());
+    private static LoadItem toLoadItem(
+            String componentName, String kind, BaseOptionModel optionModel, String camelVersion) {
+        final String data = CatalogUtil.toEmbeddableText(componentName, optionModel);
+        // The version is only part of the payload: it is updated in place on the points whose content did not change
+        final String id = CatalogUtil.toPointId(componentName, kind, optionModel.getName(), data);
 
-        return request.build();
+        return new LoadItem(componentName, id,
+                TextSegment.from(data, CatalogUtil.toMetadata(componentName, kind, optionModel, camelVersion)));
     }
 }
@@ -0,0 +1,113 @@
+package org.apache.camel.jbang.ai;
+
+import java.time.Duration;
+
+import org.apache.camel.dsl.jbang.core.commands.CamelCommand;
+import org.apache.camel.dsl.jbang.core.commands.CamelJBangMain;
+import org.apache.camel.jbang.ai.rerank.Reranker;
+import org.apache.camel.jbang.ai.serve.ExplainServer;
+import org.apache.camel.jbang.ai.store.VectorStoreConfig;
+import org.apache.camel.jbang.ai.util.ContextPacker;
+import picocli.CommandLine;
+
+@CommandLine.Command(name = "serve",
+        description = "Serve whatis and generate code requests from a long-running process")
+public class ServeCommand extends CamelCommand {
+
+    @CommandLine.Option(names = {
+            "--listen-host" }, description = "The address to listen on", defaultValue = "127.0.0.1", arity = "0..1")
+    private String listenHost;
+
+    @CommandLine.Option(names = {
+            "--listen-port" }, description = "The port to listen on", defaultValue = "8765", arity = "0..1")
+    private int listenPort;
+
+    @CommandLine.Option(names = {
+            "--threads" }, description = "How many requests to serve at once", defaultValue = "4", arity = "0..1")
+    private int threads;
+
+    @CommandLine.Option(names = {
+            "--host" }, description = "The Qdrant host", defaultValue = "localhost", arity = "1..1", required = true)
+    private String host;
+
+    @CommandLine.Option(names = {
+            "--port" }, description = "The Qdrant port", defaultValue = "6334", arity = "0..1", required = true)
+    private int port;
+
+    @CommandLine.Option(names = {
+            "--collection-name" }, description = "The Qdrant collection name", defaultValue = "camel-jbang", arity = "1..1", required = true)
+    private String collectionName;
+
+    @CommandLine.Option(names = {
+            "--store" }, description = "Where the embeddings are stored [qdrant, local]", defaultValue = "qdrant", arity = "0..1")
+    private String store;
+
+    @CommandLine.Option(names = {
+            "--store-path" }, description = "The local store directory (defaults to ~/.camel/explain/store/<collection name>)", arity = "0..1")
+    private String storePath;
+
+    @CommandLine.Option(names = {
+            "--context-token-budget" }, description = "The maximum number of tokens of retrieved context to add to the prompt (0 for no limit)", defaultValue = "1024", arity = "0..1")
+    private int contextTokenBudget;
+
+    @CommandLine.Option(names = {
+            "--hybrid-search" }, description = "Merge the vector search with a lexical (BM25) search over the catalog", defaultValue = "false", arity = "0..1")
+    private boolean hybridSearch;
+
+    @CommandLine.Option(names = {
+            "--reranker-model" }, description = "An ONNX cross-encoder to rerank the retrieved options with, with its tokenizer.json next to it (disabled by default)", arity = "0..1")
+    private String rerankerModel;
+
+    @CommandLine.Option(names = {
+            "--rerank-candidates" }, description = "How many options to retrieve for the reranker", defaultValue = "20", arity = "0..1")
+    private int rerankCandidates;
+
+    @CommandLine.Option(names = {
+            "--rerank-budget" }, description = "How many milliseconds the reranking of a question can take", defaultValue = "250", arity = "0..1")
+    private long rerankBudget;
+
+    @CommandLine.Option(names = {
+            "--catalog-lookup" }, description = "Answer the questions about a single option of a component directly from the catalog", defaultValue = "true", arity = "0..1")
+    private boolean catalogLookup;
+
+    @CommandLine.Option(names = {
+            "--answer-cache-size" }, description = "How many answers to keep in the answer cache (0 to disable it)", defaultValue = "500", arity = "0..1")
+    private int answerCacheSize;
+
+    @CommandLine.Option(names = {
+            "--answer-cache-ttl" }, description = "How many minutes a cached answer can be reused", defaultValue = "10080", arity = "0..1")
+    private int answerCacheTtl;
+
+    @CommandLine.Option(names = {
+            "--answer-cache-threshold" }, description = "How similar two questions must be (cosine similarity) to share a cached answer", defaultValue = "0.95", arity = "0..1")
+    private double answerCacheThreshold;
+
+    @CommandLine.Option(names = {"--url"}, description = "The API URL", defaultValue = "http://localhost:8000/v1/", arity = "0..1", required = true)
+    private String url;
+
+    @CommandLine.Option(names = {"--api-key"}, description = "The API key", defaultValue = "no_key", arity = "0..1", required = true)
+    private String apiKey;
+
+    @CommandLine.Option(names = {"--model-name"}, description = "The model name to use", arity = "0..1", required = true)
+    private String modelName;
+
+    public ServeCommand(CamelJBangMain main) {
+        super(main);
+    }
+
+    @Override
+    public Integer doCall() throws Exception {
+        final VectorStoreConfig storeConfig = new VectorStoreConfig(store, host, port, collectionName, storePath);
+        try (ExplainServer server = new ExplainServer(listenHost, listenPort, threads, url, apiKey, modelName,
+                storeConfig, new ContextPacker(contextTokenBudget), hybridSearch,
+                Reranker.of(rerankerModel, rerankCandidates, rerankBudget), catalogLookup,
+                storeConfig.answerCache(answerCacheSize, Duration.ofMinutes(answerCacheTtl), answerCacheThreshold))) {
+            server.start();
+
+            // Serve until the process is stopped
+            Thread.currentThread().join();
+        }
+
+        return 0;
+    }
+}
@@ -0,0 +1,171 @@
+package org.apache.camel.jbang.ai;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Answers a file of questions in one run, so that the model, the store and the connections are only set up once.
+ * <p>
+ * The input is either one question per line or JSON Lines with a {@code question} (or {@code what}) field and an
+ * optional {@code id}. The answers are written as JSON Lines, in the order of the questions.
+ */
+public final class WhatIsBatch {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * A question of the batch
+     */
+    record Question(String id, String question) {}
+
+    /**
+     * An answered question. The error is only set if the question could not be answered.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record Answer(String id, String question, String answer, String error) {}
+
+    private final Path batchFile;
+    private final Path output;
+    private final int parallelism;
+    private final Function<String, WhatIsServiceClient> clientFactory;
+
+    /**
+     * Constructor
+     * @param batchFile the questions
+     * @param output where to write the answers (null for the standard output)
+     * @param parallelism how many questions are answered at once
+     * @param clientFactory creates the client answering a question
+     */
+    public WhatIsBatch(
+            Path batchFile, Path output, int parallelism, Function<String, WhatIsServiceClient> clientFactory) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be greater than zero: " + parallelism);
+        }
+
+        this.batchFile = batchFile;
+        this.output = output;
+        this.parallelism = parallelism;
+        this.clientFactory = clientFactory;
+    }
+
+    /**
+     * Answers all the questions
+     * @return 0 if all the questions were answered, 1 otherwise
+     */
+    public int run() throws IOException, InterruptedException {
+        final List<Question> questions = readQuestions(batchFile);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        // The standard output must stay open for the rest of the command
+        final Writer writer = output != null
+                ? Files.newBufferedWriter(output, StandardCharsets.UTF_8)
+                : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        try {
+            final List<Future<Answer>> answers = new ArrayList<>(questions.size());
+            for (Question question : questions) {
+                answers.add(executor.submit(() -> answer(question)));
+            }
+
+            // Written in order as soon as available, so a long run can be followed and an interrupted one keeps its output
+            int failed = 0;
+            for (int i = 0; i < answers.size(); i++) {
+                final Answer answer = answers.get(i).get();
+                if (answer.error() != null) {
+                    failed++;
+                }
+
+                writer.write(MAPPER.writeValueAsString(answer));
+                writer.write(System.lineSeparator());
+                writer.flush();
+
+                if (output != null) {
+                    System.out.printf("Answered %d of %d questions%n", i + 1, questions.size());
+                }
+            }
+
+            if (failed > 0) {
+                System.err.printf("Unable to answer %d of %d questions%n", failed, questions.size());
+                return 1;
+            }
+            return 0;
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to answer the questions", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            if (output != null) {
+                writer.close();
+            } else {
+                writer.flush();
+            }
+        }
+    }
+
+    private Answer answer(Question question) {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (PrintStream out = new PrintStream(buffer, false, StandardCharsets.UTF_8)) {
+            final int ret = clientFactory.apply(question.question()).run(out);
+            out.flush();
+
+            final String answer = buffer.toString(StandardCharsets.UTF_8);
+            return ret == 0
+                    ? new Answer(question.id(), question.question(), answer, null)
+                    : new Answer(question.id(), question.question(), null, "Unable to answer the question");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Answer(question.id(), question.question(), null, "Interrupted");
+        } catch (RuntimeException e) {
+            return new Answer(question.id(), question.question(), null, e.getMessage());
+        }
+    }
+
+    static List<Question> readQuestions(Path batchFile) throws IOException {
+        final List<Question> questions = new ArrayList<>();
+
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(batchFile, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            final String trimmed = line.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+
+            if (!trimmed.startsWith("{")) {
+                questions.add(new Question(null, trimmed));
+                continue;
+            }
+
+            final JsonNode node;
+            try {
+                node = MAPPER.readTree(trimmed);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Invalid JSON at line " + lineNumber + " of " + batchFile, e);
+            }
+
+            final JsonNode question = node.has("question") ? node.get("question") : node.get("what");
+            if (question == null || question.asText().isBlank()) {
+                throw new IllegalArgumentException("Missing question at line " + lineNumber + " of " + batchFile);
+            }
+            questions.add(new Question(node.has("id") ? node.get("id").asText() : null, question.asText()));
+        }
+
+        return questions;
+    }
+}
@@ -1,7 +1,16 @@
 package org.apache.camel.jbang.ai;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.Function;
+
 import org.apache.camel.dsl.jbang.core.commands.CamelCommand;
 import org.apache.camel.dsl.jbang.core.commands.CamelJBangMain;
+import org.apache.camel.jbang.ai.rerank.Reranker;
+import org.apache.camel.jbang.ai.store.VectorStoreConfig;
+import org.apache.camel.jbang.ai.util.ContextPacker;
+import org.apache.camel.jbang.ai.util.RetrievalPolicy;
+import org.apache.camel.jbang.ai.util.cache.AnswerCache;
 import picocli.CommandLine;
 
 @CommandLine.Command(name = "whatis",
@@ -19,6 +28,66 @@ public class WhatIsCommand extends CamelCommand {
             "--collection-name" }, description = "The Qdrant collection name", defaultValue = "camel-jbang", arity = "1..1", required = true)
     private String collectionName;
 
+    @CommandLine.Option(names = {
+            "--store" }, description = "Where the embeddings are stored [qdrant, local]", defaultValue = "qdrant", arity = "0..1")
+    private String store;
+
+    @CommandLine.Option(names = {
+            "--store-path" }, description = "The local store directory (defaults to ~/.camel/explain/store/<collection name>)", arity = "0..1")
+    private String storePath;
+
+    @CommandLine.Option(names = {
+            "--max-results" }, description = "The maximum number of options to retrieve", defaultValue = "4", arity = "0..1")
+    private int maxResults;
+
+    @CommandLine.Option(names = {
+            "--min-score" }, description = "The minimum relevance score of a retrieved option", defaultValue = "0.7", arity = "0..1")
+    private double minScore;
+
+    @CommandLine.Option(names = {
+            "--score-window" }, description = "How far below the best score a retrieved option can be (0 to always retrieve the maximum number of options)", defaultValue = "0.1", arity = "0..1")
+    private double scoreWindow;
+
+    @CommandLine.Option(names = {
+            "--mmr-lambda" }, description = "The weight of relevance versus diversity when selecting the retrieved options, between 0 and 1 (1 to disable diversity)", defaultValue = "0.7", arity = "0..1")
+    private double mmrLambda;
+
+    @CommandLine.Option(names = {
+            "--hybrid-search" }, description = "Merge the vector search with a lexical (BM25) search over the catalog", defaultValue = "false", arity = "0..1")
+    private boolean hybridSearch;
+
+    @CommandLine.Option(names = {
+            "--reranker-model" }, description = "An ONNX cross-encoder to rerank the retrieved options with, with its tokenizer.json next to it (disabled by default, ignored with --server-url)", arity = "0..1")
+    private String rerankerModel;
+
+    @CommandLine.Option(names = {
+            "--rerank-candidates" }, description = "How many options to retrieve for the reranker", defaultValue = "20", arity = "0..1")
+    private int rerankCandidates;
+
+    @CommandLine.Option(names = {
+            "--rerank-budget" }, description = "How many milliseconds the reranking of a question can take", defaultValue = "250", arity = "0..1")
+    private long rerankBudget;
+
+    @CommandLine.Option(names = {
+            "--catalog-lookup" }, description = "Answer the questions about a single option of a component directly from the catalog", defaultValue = "true", arity = "0..1")
+    private boolean catalogLookup;
+
+    @CommandLine.Option(names = {
+            "--context-token-budget" }, description = "The maximum number of tokens of retrieved context to add to the prompt (0 for no limit)", defaultValue = "1024", arity = "0..1")
+    private int contextTokenBudget;
+
+    @CommandLine.Option(names = {
+            "--answer-cache-size" }, description = "How many answers to keep in the answer cache (0 to disable it, ignored with --server-url)", defaultValue = "500", arity = "0..1")
+    private int answerCacheSize;
+
+    @CommandLine.Option(names = {
+            "--answer-cache-ttl" }, description = "How many minutes a cached answer can be reused", defaultValue = "10080", arity = "0..1")
+    private int answerCacheTtl;
+
+    @CommandLine.Option(names = {
+            "--answer-cache-threshold" }, description = "How similar two questions must be (cosine similarity) to share a cached answer", defaultValue = "0.95", arity = "0..1")
+    private double answerCacheThreshold;
+
     @CommandLine.Option(names = {"--url"}, description = "The API URL", defaultValue = "http://localhost:8000/v1/", arity = "0..1", required = true)
     private String url;
 
@@ -32,7 +101,23 @@ public class WhatIsCommand extends CamelCommand {
             defaultValue = "You are a coding assistant specialized in Apache Camel", arity = "0..1")
     private String systemPrompt;
 
-    @CommandLine.Parameters(paramLabel = "what", description = "What to explain (also known as 'user prompt')")
+    @CommandLine.Option(names = {"--server-url"}, description = "The URL of a running 'serve' process to forward the request to (i.e.: http://localhost:8765). The system prompt, the model name, the retrieval options, the context token budget and the catalog lookup are forwarded with it, but the server uses its own API, store, reranker and answer cache",
+            arity = "0..1")
+    private String serverUrl;
+
+    @CommandLine.Option(names = {
+            "--batch-file" }, description = "Answer the questions in this file instead: one per line, or JSON Lines with a 'question' and an optional 'id'", arity = "0..1")
+    private String batchFile;
+
+    @CommandLine.Option(names = {
+            "--output" }, description = "Where to write the answers of a batch as JSON Lines (defaults to the standard output)", arity = "0..1")
+    private String output;
+
+    @CommandLine.Option(names = {
+            "--parallelism" }, description = "How many questions of a batch are answered at once", defaultValue = "4", arity = "0..1")
+    private int parallelism;
+
+    @CommandLine.Parameters(paramLabel = "what", description = "What to explain (also known as 'user prompt')", arity = "0..1")
     private String what;
 
 
@@ -42,9 +127,34 @@ public class WhatIsCommand extends CamelCommand {
 
     @Override
     public Integer doCall() throws Exception {
-        WhatIsServiceClient serviceClient = new WhatIsServiceClient(url, apiKey, modelName, systemPrompt, what, host, port, collectionName);
+        if (serverUrl != null && rerankerModel != null) {
+            System.err.printf("Ignoring --reranker-model: the server at %s uses its own reranker%n", serverUrl);
+        }
+
+        final VectorStoreConfig storeConfig = new VectorStoreConfig(store, host, port, collectionName, storePath);
+        final RetrievalPolicy retrievalPolicy = new RetrievalPolicy(maxResults, minScore, scoreWindow, mmrLambda,
+                hybridSearch).withReranker(serverUrl == null
+                        ? Reranker.of(rerankerModel, rerankCandidates, rerankBudget) : null);
+        final ContextPacker contextPacker = new ContextPacker(contextTokenBudget);
+        // Shared by all the questions of a batch. The server has its own.
+        final AnswerCache answerCache = serverUrl == null
+                ? storeConfig.answerCache(answerCacheSize, Duration.ofMinutes(answerCacheTtl), answerCacheThreshold)
+                : null;
+
+        final Function<String, WhatIsServiceClient> clientFactory = question -> new WhatIsServiceClient(url, apiKey,
+                modelName, systemPrompt, question, storeConfig, retrievalPolicy, contextPacker, catalogLookup,
+                serverUrl, answerCache);
+
+        if (batchFile != null) {
+            return new WhatIsBatch(Path.of(batchFile), output != null ? Path.of(output) : null, parallelism,
+                    clientFactory).run();
+        }
+        if (what == null) {
+            System.err.println("Either a question or --batch-file is required");
+            return 1;
+        }
 
-        return serviceClient.run();
+        return clientFactory.apply(what).run();
     }
 
 
@@ -1,21 +1,34 @@
 package org.apache.camel.jbang.ai;
 
+import java.io.PrintStream;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
+import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import dev.langchain4j.model.input.Prompt;
 import dev.langchain4j.model.input.PromptTemplate;
-import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
 import dev.langchain4j.model.output.Response;
 import dev.langchain4j.store.embedding.EmbeddingMatch;
-
-import static org.apache.camel.jbang.ai.util.ModelUtil.buildModel;
+import org.apache.camel.jbang.ai.serve.ExplainRequest;
+import org.apache.camel.jbang.ai.serve.ExplainServer;
+import org.apache.camel.jbang.ai.serve.ExplainServerClient;
+import org.apache.camel.jbang.ai.store.VectorStoreConfig;
+import org.apache.camel.jbang.ai.util.CatalogLookup;
+import org.apache.camel.jbang.ai.util.ContextPacker;
+import org.apache.camel.jbang.ai.util.ResourceRegistry;
+import org.apache.camel.jbang.ai.util.RetrievalPolicy;
+import org.apache.camel.jbang.ai.util.cache.AnswerCache;
+
+import static org.apache.camel.jbang.ai.util.RagUtil.embed;
 import static org.apache.camel.jbang.ai.util.RagUtil.findRelevant;
 import static org.apache.camel.jbang.ai.util.RagUtil.toPrompt;
 
@@ -34,39 +47,96 @@ public class WhatIsServiceClient {
     private final String modelName;
     private final String systemPrompt;
     private final String what;
-    private final String host;
-    private final int port;
-    private final String collectionName;
-
+    private final VectorStoreConfig storeConfig;
+    private final RetrievalPolicy retrievalPolicy;
+    private final ContextPacker contextPacker;
+    private final boolean catalogLookup;
+    private final String serverUrl;
+    private final AnswerCache answerCache;
 
     public WhatIsServiceClient(
-            String url, String apiKey, String modelName, String systemPrompt, String what, String host,
-            int port, String collectionName) {
+            String url, String apiKey, String modelName, String systemPrompt, String what,
+            VectorStoreConfig storeConfig, RetrievalPolicy retrievalPolicy, ContextPacker contextPacker,
+            boolean catalogLookup, String serverUrl, AnswerCache answerCache) {
         this.url = url;
         this.apiKey = apiKey;
         this.modelName = modelName;
         this.systemPrompt = systemPrompt;
         this.what = what;
-        this.host = host;
-        this.port = port;
-        this.collectionName = collectionName;
+        this.storeConfig = storeConfig;
+        this.retrievalPolicy = retrievalPolicy;
+        this.contextPacker = contextPacker;
+        this.catalogLookup = catalogLookup;
+        this.serverUrl = serverUrl;
+        this.answerCache = answerCache;
     }
 
     public int run() throws InterruptedException {
-        OpenAiStreamingChatModel chatModel = buildModel(url, apiKey, modelName);
+        return run(System.out);
+    }
+
+    /**
+     * Runs the request, streaming the response to the given output
+     * @param out where to print the response
+     * @return the exit code
+     */
+    public int run(PrintStream out) throws InterruptedException {
+        if (serverUrl != null) {
+            return ExplainServerClient.forward(serverUrl, ExplainServer.WHATIS_PATH,
+                    ExplainRequest.of(what, systemPrompt, modelName, retrievalPolicy, contextPacker, catalogLookup),
+                    out);
+        }
 
-        final List<ChatMessage> messages = createChatMessages();
+        // Plain option lookups are answered from the catalog: exact, and much faster than the LLM
+        if (catalogLookup) {
+            final String catalogAnswer = CatalogLookup.answer(what);
+            if (catalogAnswer != null) {
+                out.print(catalogAnswer);
+                out.flush();
+                return 0;
+            }
+        }
+
+        final Embedding questionEmbedding = embed(what);
+        final List<EmbeddingMatch<TextSegment>> relevantEmbeddings =
+                findRelevant(storeConfig.embeddingStore(), what, questionEmbedding, retrievalPolicy);
+        final List<String> contextIds = relevantEmbeddings.stream().map(EmbeddingMatch::embeddingId).toList();
+
+        if (answerCache != null) {
+            final String cachedAnswer =
+                    answerCache.find(questionEmbedding.vector(), contextIds, modelName, systemPrompt);
+            if (cachedAnswer != null) {
+                out.print(cachedAnswer);
+                out.flush();
+                return 0;
+            }
+        }
+
+        StreamingChatLanguageModel chatModel = ResourceRegistry.chatModel(url, apiKey, modelName);
+
+        final List<ChatMessage> messages = createChatMessages(relevantEmbeddings);
 
         CountDownLatch latch = new CountDownLatch(1);
+        // Set once the caller stops waiting, since it may close the output while the response is still streaming
+        AtomicBoolean abandoned = new AtomicBoolean();
+        StringBuilder answer = new StringBuilder();
+        AtomicReference<Throwable> error = new AtomicReference<>();
 
         chatModel.generate(messages, new StreamingResponseHandler<>() {
             @Override
             public void onNext(String s) {
-                System.out.print(s);
+                answer.append(s);
+                synchronized (out) {
+                    if (!abandoned.get()) {
+                        out.print(s);
+                        out.flush();
+                    }
+                }
             }
 
             @Override
             public void onError(Throwable throwable) {
+                error.set(throwable);
                 latch.countDown();
             }
 
@@ -74,21 +144,41 @@ public class WhatIsServiceClient {
             public void onComplete(Response<AiMessage> response) {
                 try {
                     StreamingResponseHandler.super.onComplete(response);
+
+                    // Only complete answers are cached
+                    if (answerCache != null) {
+                        answerCache.put(what, questionEmbedding.vector(), contextIds, modelName, systemPrompt,
+                                answer.toString());
+                    }
                 } finally {
                     latch.countDown();
                 }
             }
         });
 
-
-        latch.await(2, TimeUnit.MINUTES);
+        if (!latch.await(2, TimeUnit.MINUTES)) {
+            abandon(out, abandoned);
+            System.err.printf("Timed out answering: %s%n", what);
+            return 1;
+        }
+        if (error.get() != null) {
+            System.err.printf("Unable to answer '%s': %s%n", what, error.get().getMessage());
+            return 1;
+        }
         return 0;
     }
 
-    private List<ChatMessage> createChatMessages() {
-        final List<EmbeddingMatch<TextSegment>> relevantEmbeddings = findRelevant(host, port, collectionName, what);
+    /*
+     * Holds the lock of the output, so that no token is being printed once this returns
+     */
+    private static void abandon(PrintStream out, AtomicBoolean abandoned) {
+        synchronized (out) {
+            abandoned.set(true);
+        }
+    }
 
-        final Prompt prompt = toPrompt(PROMPT_TEMPLATE, relevantEmbeddings, what);
+    private List<ChatMessage> createChatMessages(List<EmbeddingMatch<TextSegment>> relevantEmbeddings) {
+        final Prompt prompt = toPrompt(PROMPT_TEMPLATE, contextPacker.pack(relevantEmbeddings), what);
 
         List<ChatMessage> messages;
         if (systemPrompt != null) {
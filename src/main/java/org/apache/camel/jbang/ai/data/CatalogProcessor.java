@@ -1,17 +1,30 @@
 package org.apache.camel.jbang.ai.data;
 
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import dev.langchain4j.model.input.Prompt;
 import dev.langchain4j.model.input.PromptTemplate;
-import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
 import org.apache.camel.catalog.CamelCatalog;
 import org.apache.camel.jbang.ai.types.AlpacaRecord;
 import org.apache.camel.jbang.ai.util.CatalogUtil;
+import org.apache.camel.jbang.ai.util.sink.RecordSink;
+import org.apache.camel.jbang.ai.util.steps.AdaptiveLimiter;
 import org.apache.camel.jbang.ai.util.steps.Steps;
 import org.apache.camel.tooling.model.BaseOptionModel;
 import org.apache.camel.util.StopWatch;
@@ -23,8 +36,20 @@ public abstract class CatalogProcessor {
     private static final PromptTemplate ANSWER_GENERATOR_PROMPT_TEMPLATE = PromptTemplate.from(
             "Please write a paragraph explaining the following information: \"{{information}}\" as if replying to the following question: {{question}}. Only generate the response and nothing else.");
 
-    protected final OpenAiStreamingChatModel chatModel;
+    private static final PromptTemplate BATCH_GENERATOR_PROMPT_TEMPLATE = PromptTemplate.from(
+            "For each of the following options of the Apache Camel component {{component}}, please write a question that can be answered by the information of the option, and a paragraph explaining this information as if replying to the question. Reply with a JSON object with a \"records\" array holding, for each option and in the same order, an object with the \"option\" name, the \"question\" and the \"answer\". Only generate the JSON and nothing else.\n\n{{options}}");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // OkHttp runs at most 5 streaming requests per host for each client, so every thread uses its own model
+    protected final ThreadLocal<StreamingChatLanguageModel> chatModel;
+    protected final ThreadLocal<StreamingChatLanguageModel> jsonChatModel;
     protected final CamelCatalog catalog;
+    protected final int concurrency;
+    protected final AdaptiveLimiter limiter;
+    protected final int batchSize;
+    protected final GenerationJournal journal;
+    private StagedExecutor executor;
 
     protected static class ChatContext {
         public final String name;
@@ -40,9 +65,33 @@ public abstract class CatalogProcessor {
         }
     }
 
-    protected CatalogProcessor(OpenAiStreamingChatModel chatModel, CamelCatalog catalog) {
-        this.chatModel = chatModel;
+    /**
+     * Constructor
+     * @param chatModelFactory creates the chat models
+     * @param jsonChatModelFactory creates the chat models replying in JSON, for the batches of options
+     * @param catalog the catalog
+     * @param concurrency how many options are processed at once
+     * @param limiter adapts the number of calls in flight to the LLM API (null to always use the concurrency)
+     * @param batchSize how many options to generate the records of in a single call (1 to disable the batches)
+     * @param journal where to record the generated options, to resume an interrupted run (null to disable it)
+     */
+    protected CatalogProcessor(Supplier<StreamingChatLanguageModel> chatModelFactory,
+            Supplier<StreamingChatLanguageModel> jsonChatModelFactory, CamelCatalog catalog, int concurrency,
+            AdaptiveLimiter limiter, int batchSize, GenerationJournal journal) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("The concurrency must be greater than zero: " + concurrency);
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be greater than zero: " + batchSize);
+        }
+
+        this.chatModel = ThreadLocal.withInitial(chatModelFactory);
+        this.jsonChatModel = ThreadLocal.withInitial(jsonChatModelFactory);
         this.catalog = catalog;
+        this.concurrency = concurrency;
+        this.limiter = limiter;
+        this.batchSize = batchSize;
+        this.journal = journal;
     }
 
     public abstract void process(int startFrom)
@@ -50,16 +99,80 @@ public abstract class CatalogProcessor {
 
     protected void processRecords(int startFrom, List<String> componentNames, int totalComponents)
             throws InterruptedException {
-        for (int i = startFrom; i < componentNames.size(); i++) {
-            processRecord(componentNames, i, totalComponents);
+        if (concurrency > 1) {
+            executor = new StagedExecutor(concurrency);
+        }
+        try {
+            for (int i = startFrom; i < componentNames.size(); i++) {
+                processRecord(componentNames, i, totalComponents);
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
         }
     }
 
     protected abstract void processRecord(List<String> componentNames, int i, int totalComponents) throws InterruptedException;
 
+    /**
+     * The prompt templates used to generate the records
+     */
+    protected List<PromptTemplate> promptTemplates() {
+        return List.of(QUESTION_GENERATOR_PROMPT_TEMPLATE, ANSWER_GENERATOR_PROMPT_TEMPLATE,
+                BATCH_GENERATOR_PROMPT_TEMPLATE);
+    }
+
+    /**
+     * Describes the prompts used to generate the records, so that the records journaled with other prompts are
+     * generated again
+     * @return the hash of the prompt templates
+     */
+    public String describePrompts() {
+        final StringBuilder templates = new StringBuilder();
+        for (PromptTemplate template : promptTemplates()) {
+            templates.append(template.template()).append('\u0000');
+        }
+
+        return CatalogUtil.contentHash(templates.toString());
+    }
+
+    /**
+     * Generates the records of the options and writes them to the sink, in the order of the options
+     */
     protected void processOption(
-            List<AlpacaRecord> alpacaRecords, String componentName,
-            List<? extends BaseOptionModel> optionModels, String type) {
+            RecordSink sink, String componentName,
+            List<? extends BaseOptionModel> optionModels, String type) throws InterruptedException {
+        // The options generated by a previous run are taken from the journal
+        final List<List<AlpacaRecord>> journaledRecords = new ArrayList<>(optionModels.size());
+        final List<BaseOptionModel> pendingOptionModels = new ArrayList<>(optionModels.size());
+        for (BaseOptionModel optionModel : optionModels) {
+            final List<AlpacaRecord> journaled =
+                    journal != null ? journal.records(componentName, type, optionModel.getName()) : null;
+            journaledRecords.add(journaled);
+            if (journaled == null) {
+                pendingOptionModels.add(optionModel);
+            }
+        }
+        if (pendingOptionModels.size() < optionModels.size()) {
+            System.out.printf("[%s] Skipping %d of %d %s options of %s, already generated%n", CatalogUtil.currentTime(),
+                    optionModels.size() - pendingOptionModels.size(), optionModels.size(), type, componentName);
+        }
+
+        final OptionWriter writer = new OptionWriter(sink, journaledRecords);
+        if (batchSize > 1) {
+            processOptionsInBatches(componentName, pendingOptionModels, type, writer);
+        } else if (executor != null) {
+            processOptionsConcurrently(componentName, pendingOptionModels, type, writer);
+        } else {
+            processOptionsSequentially(componentName, pendingOptionModels, type, writer);
+        }
+        writer.writeJournaled();
+    }
+
+    private void processOptionsSequentially(
+            String componentName, List<? extends BaseOptionModel> optionModels, String type, OptionWriter writer) {
         int componentOptionCount = 1;
         final int componentOptionTotal = optionModels.size();
         for (BaseOptionModel optionModel : optionModels) {
@@ -69,7 +182,10 @@ public abstract class CatalogProcessor {
                     componentOptionCount, componentOptionTotal,
                     componentName, optionModel.getName());
 
-            createRecord(componentName, optionModel, alpacaRecords);
+            final List<AlpacaRecord> records = new ArrayList<>(1);
+            createRecord(componentName, optionModel, records);
+            completeOption(componentName, type, optionModel, records);
+            writer.write(records);
 
             componentOptionCount++;
 
@@ -78,6 +194,236 @@ public abstract class CatalogProcessor {
         }
     }
 
+    /**
+     * Processes the options in parallel, in two pipelined stages: the questions, then the answers. The records are
+     * written in the order of the options, whatever the order in which they complete, so that the saved records are
+     * the same as the sequential ones.
+     */
+    private void processOptionsConcurrently(
+            String componentName, List<? extends BaseOptionModel> optionModels, String type, OptionWriter writer)
+            throws InterruptedException {
+        final int componentOptionTotal = optionModels.size();
+
+        final Queue<CompletableFuture<List<List<AlpacaRecord>>>> futures = new ArrayDeque<>(componentOptionTotal);
+        for (int i = 0; i < componentOptionTotal; i++) {
+            final int componentOptionCount = i + 1;
+            final BaseOptionModel optionModel = optionModels.get(i);
+            final CompletableFuture<List<List<AlpacaRecord>>> future = new CompletableFuture<>();
+            futures.add(future);
+
+            executor.execute(StagedExecutor.Stage.QUESTION, () -> {
+                try {
+                    StopWatch watch = new StopWatch();
+                    final Steps steps = generateQuestion(componentName, optionModel);
+
+                    executor.execute(StagedExecutor.Stage.ANSWER, () -> {
+                        try {
+                            final List<AlpacaRecord> records = new ArrayList<>(1);
+                            generateAnswer(steps, records);
+                            completeOption(componentName, type, optionModel, records);
+
+                            final long taken = watch.taken();
+                            System.out.printf("[%s] Processed %s option %d of %d: %s -> %s [took %d s]%n",
+                                    CatalogUtil.currentTime(), type, componentOptionCount, componentOptionTotal,
+                                    componentName, optionModel.getName(), Duration.ofMillis(taken).toSeconds());
+                            future.complete(List.of(records));
+                        } catch (RuntimeException e) {
+                            future.completeExceptionally(e);
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        }
+
+        writeRecords(componentName, futures, writer);
+    }
+
+    /**
+     * Processes the options in batches, each generated in a single call (and in parallel if there is a concurrency).
+     * The options that are missing or invalid in the response of the batch are generated one by one.
+     */
+    private void processOptionsInBatches(
+            String componentName, List<? extends BaseOptionModel> optionModels, String type, OptionWriter writer)
+            throws InterruptedException {
+        final int componentOptionTotal = optionModels.size();
+
+        final Queue<CompletableFuture<List<List<AlpacaRecord>>>> futures = new ArrayDeque<>();
+        for (int start = 0; start < componentOptionTotal; start += batchSize) {
+            final int first = start;
+            final List<? extends BaseOptionModel> batch =
+                    optionModels.subList(start, Math.min(start + batchSize, componentOptionTotal));
+            final CompletableFuture<List<List<AlpacaRecord>>> future = new CompletableFuture<>();
+            futures.add(future);
+
+            final Runnable task = () -> {
+                try {
+                    StopWatch watch = new StopWatch();
+                    final List<List<AlpacaRecord>> batchRecords = new ArrayList<>(batch.size());
+                    final int fallbacks = createRecords(componentName, batch, batchRecords);
+                    for (int i = 0; i < batch.size(); i++) {
+                        completeOption(componentName, type, batch.get(i), batchRecords.get(i));
+                    }
+
+                    final long taken = watch.taken();
+                    System.out.printf("[%s] Processed %s options %d to %d of %d: %s (%d one by one) [took %d s]%n",
+                            CatalogUtil.currentTime(), type, first + 1, first + batch.size(), componentOptionTotal,
+                            componentName, fallbacks, Duration.ofMillis(taken).toSeconds());
+                    future.complete(batchRecords);
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            };
+
+            if (executor != null) {
+                executor.execute(StagedExecutor.Stage.QUESTION, task);
+            } else {
+                task.run();
+                writeRecords(componentName, futures, writer);
+            }
+        }
+
+        writeRecords(componentName, futures, writer);
+    }
+
+    /**
+     * Writes the records of the futures in their order, as soon as each one completes. The futures are removed once
+     * written, so that only the records completed out of order are held in memory.
+     */
+    private static void writeRecords(
+            String componentName, Queue<CompletableFuture<List<List<AlpacaRecord>>>> futures, OptionWriter writer)
+            throws InterruptedException {
+        try {
+            while (!futures.isEmpty()) {
+                futures.peek().get().forEach(writer::write);
+                futures.remove();
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            throw new RuntimeException("Failed to process the options of " + componentName, e.getCause());
+        }
+    }
+
+    /**
+     * Writes the records of the options in their order: the records of each generated option are written after the
+     * ones of the journaled options before it.
+     */
+    private static final class OptionWriter {
+        private final RecordSink sink;
+        // The records of each option, or null for the options to generate
+        private final List<List<AlpacaRecord>> journaledRecords;
+        private int next;
+
+        OptionWriter(RecordSink sink, List<List<AlpacaRecord>> journaledRecords) {
+            this.sink = sink;
+            this.journaledRecords = journaledRecords;
+        }
+
+        /**
+         * Writes the records of the next option to generate
+         */
+        void write(List<AlpacaRecord> records) {
+            writeJournaled();
+            next++;
+            records.forEach(sink::write);
+        }
+
+        /**
+         * Writes the records of the journaled options up to the next option to generate
+         */
+        void writeJournaled() {
+            while (next < journaledRecords.size() && journaledRecords.get(next) != null) {
+                journaledRecords.get(next++).forEach(sink::write);
+            }
+        }
+    }
+
+    /**
+     * Journals the records of an option, unless they failed to generate (so that they are retried on restart)
+     */
+    private void completeOption(
+            String componentName, String type, BaseOptionModel optionModel, List<AlpacaRecord> records) {
+        if (journal != null && !records.isEmpty()) {
+            journal.append(componentName, type, optionModel.getName(), records);
+        }
+    }
+
+    /**
+     * Generates the records of a batch of options in a single call, then the ones that are missing or invalid one by
+     * one
+     * @param optionRecords where to add the records of each option, in the order of the options
+     * @return how many options were generated one by one
+     */
+    protected int createRecords(
+            String componentName, List<? extends BaseOptionModel> optionModels,
+            List<List<AlpacaRecord>> optionRecords) {
+        final Map<BaseOptionModel, AlpacaRecord> batchRecords = new HashMap<>();
+
+        Steps.ChatStep.using(jsonChatModel.get(), limiter)
+                .usingPrompt(c -> generateBatchPrompt(componentName, optionModels)).chat()
+                .andThen(c -> parseBatchRecords(c, componentName, optionModels, batchRecords));
+
+        int fallbacks = 0;
+        for (BaseOptionModel optionModel : optionModels) {
+            final List<AlpacaRecord> records = new ArrayList<>(1);
+            final AlpacaRecord alpacaRecord = batchRecords.get(optionModel);
+            if (alpacaRecord != null) {
+                records.add(alpacaRecord);
+            } else {
+                fallbacks++;
+                createRecord(componentName, optionModel, records);
+            }
+            optionRecords.add(records);
+        }
+
+        return fallbacks;
+    }
+
+    private void parseBatchRecords(
+            Steps.ChatMeta chatMeta, String componentName, List<? extends BaseOptionModel> optionModels,
+            Map<BaseOptionModel, AlpacaRecord> batchRecords) {
+        if (chatMeta.exception() != null) {
+            return;
+        }
+
+        final String response = chatMeta.conversationUnit().response();
+        final JsonNode records;
+        try {
+            // Some models still wrap the JSON in a Markdown block
+            final int start = response.indexOf('{');
+            final int end = response.lastIndexOf('}');
+            final JsonNode root = start >= 0 && end > start
+                    ? MAPPER.readTree(response.substring(start, end + 1))
+                    : MAPPER.missingNode();
+            records = root.path("records");
+        } catch (JsonProcessingException e) {
+            System.err.printf("[%s] Invalid JSON in the batch response for %s: %s%n", CatalogUtil.currentTime(),
+                    componentName, e.getOriginalMessage());
+            return;
+        }
+
+        final Map<String, BaseOptionModel> byName = new LinkedHashMap<>();
+        for (BaseOptionModel optionModel : optionModels) {
+            byName.put(optionModel.getName().toLowerCase(Locale.ROOT), optionModel);
+        }
+
+        for (JsonNode record : records) {
+            final BaseOptionModel optionModel = byName.remove(record.path("option").asText().toLowerCase(Locale.ROOT));
+            final String question = record.path("question").asText().trim();
+            final String answer = record.path("answer").asText().trim();
+            if (optionModel == null || question.isEmpty() || answer.isEmpty()) {
+                continue;
+            }
+
+            final AlpacaRecord alpacaRecord = new AlpacaRecord();
+            alpacaRecord.setInstruction(question);
+            alpacaRecord.setInput("");
+            alpacaRecord.setOutput(answer);
+            batchRecords.put(optionModel, alpacaRecord);
+        }
+    }
+
     /**
      * This is the main workflow with the LLM API
      * @param componentName
@@ -85,10 +431,24 @@ public abstract class CatalogProcessor {
      * @param alpacaRecords
      */
     protected void createRecord(String componentName, BaseOptionModel optionModel, List<AlpacaRecord> alpacaRecords) {
-        Steps.ChatStep.using(chatModel)
+        generateAnswer(generateQuestion(componentName, optionModel), alpacaRecords);
+    }
+
+    /**
+     * The first stage of the workflow: generates the question about the option
+     * @return the chat, to continue with {@link #generateAnswer(Steps, List)}
+     */
+    protected Steps generateQuestion(String componentName, BaseOptionModel optionModel) {
+        return Steps.ChatStep.using(chatModel.get(), limiter)
                 .withContext(c -> startChat(c, componentName, optionModel))
-                .usingPrompt(this::generateQuestionPrompt).chat()
-                .usingPrompt(this::generateAnswerPrompt).chat().andThen(c -> addRecords(c, alpacaRecords));
+                .usingPrompt(this::generateQuestionPrompt).chat();
+    }
+
+    /**
+     * The second stage of the workflow: answers the question and adds the record
+     */
+    protected void generateAnswer(Steps steps, List<AlpacaRecord> alpacaRecords) {
+        steps.usingPrompt(this::generateAnswerPrompt).chat().andThen(c -> addRecords(c, alpacaRecords));
     }
 
     public void startChat(Steps.ChatMeta chatMeta, String name, BaseOptionModel optionModel) {
@@ -103,6 +463,11 @@ public abstract class CatalogProcessor {
     }
 
     private UserMessage generateAnswerPrompt(Steps.ChatMeta chatMeta) {
+        if (chatMeta.exception() != null) {
+            // No question to answer
+            return null;
+        }
+
         ChatContext chatContext = chatMeta.context(ChatContext.class);
 
         return generateAnswerPrompt(chatContext.rawData, chatMeta.conversationUnit().response());
@@ -110,6 +475,12 @@ public abstract class CatalogProcessor {
 
     public void addRecords(Steps.ChatMeta chatMeta, List<AlpacaRecord> alpacaRecords) {
         ChatContext chatContext = chatMeta.context(ChatContext.class);
+        if (chatMeta.exception() != null) {
+            // A record with an empty or truncated question or answer would only pollute the dataset
+            System.err.printf("[%s] Skipping the record for %s -> %s: %s%n", CatalogUtil.currentTime(),
+                    chatContext.name, chatContext.optionModel.getName(), chatMeta.exception().getMessage());
+            return;
+        }
         Steps.ConversationUnit conversationUnit = chatMeta.conversationUnit();
 
         chatContext.alpacaRecord.setInstruction(conversationUnit.lastConversationUnit().response().trim());
@@ -131,6 +502,26 @@ public abstract class CatalogProcessor {
         return prompt.toUserMessage();
     }
 
+    protected UserMessage generateBatchPrompt(String name, List<? extends BaseOptionModel> optionModels) {
+        return generateBatchPrompt(BATCH_GENERATOR_PROMPT_TEMPLATE, name, optionModels);
+    }
+
+    protected static UserMessage generateBatchPrompt(
+            PromptTemplate template, String name, List<? extends BaseOptionModel> optionModels) {
+        final StringBuilder options = new StringBuilder();
+        for (BaseOptionModel optionModel : optionModels) {
+            options.append(String.format("Option: %s%nInformation: %s%n%n", optionModel.getName(),
+                    CatalogUtil.toEmbeddableText(name, optionModel)));
+        }
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("component", name);
+        variables.put("options", options.toString().trim());
+
+        final Prompt prompt = template.apply(variables);
+        return prompt.toUserMessage();
+    }
+
     protected UserMessage generateAnswerPrompt(String information, String question) {
         Map<String, Object> variables = new HashMap<>();
         variables.put("information", information);
@@ -1,18 +1,21 @@
 package org.apache.camel.jbang.ai.data;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
-import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import org.apache.camel.catalog.CamelCatalog;
-import org.apache.camel.jbang.ai.types.AlpacaRecord;
 import org.apache.camel.jbang.ai.util.CatalogUtil;
+import org.apache.camel.jbang.ai.util.sink.RecordSink;
+import org.apache.camel.jbang.ai.util.steps.AdaptiveLimiter;
 import org.apache.camel.tooling.model.ComponentModel;
 
 public class ComponentCatalogProcessor extends CatalogProcessor {
 
-    public ComponentCatalogProcessor(OpenAiStreamingChatModel chatModel, CamelCatalog catalog) {
-        super(chatModel, catalog);
+    public ComponentCatalogProcessor(Supplier<StreamingChatLanguageModel> chatModelFactory,
+            Supplier<StreamingChatLanguageModel> jsonChatModelFactory, CamelCatalog catalog, int concurrency,
+            AdaptiveLimiter limiter, int batchSize, GenerationJournal journal) {
+        super(chatModelFactory, jsonChatModelFactory, catalog, concurrency, limiter, batchSize, journal);
     }
 
     @Override
@@ -42,18 +45,17 @@ public class ComponentCatalogProcessor extends CatalogProcessor {
             throws InterruptedException {
         final String componentName = componentNames.get(i);
 
-        final List<AlpacaRecord> alpacaRecords = new ArrayList<>(1024);
         System.out.printf("[%s] Processing component %d of %d: %s%n", CatalogUtil.currentTime(), i, totalComponents, componentName);
 
         final ComponentModel componentModel = catalog.componentModel(componentName);
 
-        final List<ComponentModel.ComponentOptionModel> componentOptions = componentModel.getComponentOptions();
-        processOption(alpacaRecords, componentName, componentOptions, "component");
+        try (RecordSink sink = CatalogUtil.openRecordSink(componentName)) {
+            final List<ComponentModel.ComponentOptionModel> componentOptions = componentModel.getComponentOptions();
+            processOption(sink, componentName, componentOptions, "component");
 
-        final List<ComponentModel.EndpointOptionModel> endpointParameterOptions =
-                componentModel.getEndpointParameterOptions();
-        processOption(alpacaRecords, componentName, endpointParameterOptions, "endpoint");
-
-        CatalogUtil.saveRecords(alpacaRecords, componentName);
+            final List<ComponentModel.EndpointOptionModel> endpointParameterOptions =
+                    componentModel.getEndpointParameterOptions();
+            processOption(sink, componentName, endpointParameterOptions, "endpoint");
+        }
     }
 }
@@ -1,17 +1,20 @@
 package org.apache.camel.jbang.ai.data;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
-import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import org.apache.camel.catalog.CamelCatalog;
-import org.apache.camel.jbang.ai.types.AlpacaRecord;
 import org.apache.camel.jbang.ai.util.CatalogUtil;
+import org.apache.camel.jbang.ai.util.sink.RecordSink;
+import org.apache.camel.jbang.ai.util.steps.AdaptiveLimiter;
 import org.apache.camel.tooling.model.DataFormatModel;
 
 public class DataFormatCatalogProcessor extends CatalogProcessor {
-    public DataFormatCatalogProcessor(OpenAiStreamingChatModel chatModel, CamelCatalog catalog) {
-        super(chatModel, catalog);
+    public DataFormatCatalogProcessor(Supplier<StreamingChatLanguageModel> chatModelFactory,
+            Supplier<StreamingChatLanguageModel> jsonChatModelFactory, CamelCatalog catalog, int concurrency,
+            AdaptiveLimiter limiter, int batchSize, GenerationJournal journal) {
+        super(chatModelFactory, jsonChatModelFactory, catalog, concurrency, limiter, batchSize, journal);
     }
 
     @Override
@@ -27,14 +30,13 @@ public class DataFormatCatalogProcessor extends CatalogProcessor {
             throws InterruptedException {
         final String componentName = componentNames.get(i);
 
-        final List<AlpacaRecord> alpacaRecords = new ArrayList<>(1024);
         System.out.printf("[%s] Processing data format %d of %d: %s%n", CatalogUtil.currentTime(), i, totalComponents, componentName);
 
         final DataFormatModel componentModel = catalog.dataFormatModel(componentName);
 
-        final List<DataFormatModel.DataFormatOptionModel> componentOptions = componentModel.getOptions();
-        processOption(alpacaRecords, componentName, componentOptions, "component");
-
-        CatalogUtil.saveRecords(alpacaRecords, componentName);
+        try (RecordSink sink = CatalogUtil.openRecordSink(componentName)) {
+            final List<DataFormatModel.DataFormatOptionModel> componentOptions = componentModel.getOptions();
+            processOption(sink, componentName, componentOptions, "component");
+        }
     }
 }
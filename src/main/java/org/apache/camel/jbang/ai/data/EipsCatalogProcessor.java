@@ -4,15 +4,17 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import dev.langchain4j.model.input.Prompt;
 import dev.langchain4j.model.input.PromptTemplate;
-import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
 import org.apache.camel.catalog.CamelCatalog;
-import org.apache.camel.jbang.ai.types.AlpacaRecord;
 import org.apache.camel.jbang.ai.util.CatalogUtil;
+import org.apache.camel.jbang.ai.util.sink.RecordSink;
+import org.apache.camel.jbang.ai.util.steps.AdaptiveLimiter;
 import org.apache.camel.tooling.model.BaseOptionModel;
 import org.apache.camel.tooling.model.EipModel;
 
@@ -20,8 +22,13 @@ public class EipsCatalogProcessor extends CatalogProcessor {
     private static final PromptTemplate QUESTION_GENERATOR_PROMPT_TEMPLATE = PromptTemplate.from(
             "Please write a question about the Apache Camel pattern {{pattern}} option named {{optionName}} that can be answered by the following information: {{information}}");
 
-    public EipsCatalogProcessor(OpenAiStreamingChatModel chatModel, CamelCatalog catalog) {
-        super(chatModel, catalog);
+    private static final PromptTemplate BATCH_GENERATOR_PROMPT_TEMPLATE = PromptTemplate.from(
+            "For each of the following options of the Apache Camel pattern {{component}}, please write a question that can be answered by the information of the option, and a paragraph explaining this information as if replying to the question. Reply with a JSON object with a \"records\" array holding, for each option and in the same order, an object with the \"option\" name, the \"question\" and the \"answer\". Only generate the JSON and nothing else.\n\n{{options}}");
+
+    public EipsCatalogProcessor(Supplier<StreamingChatLanguageModel> chatModelFactory,
+            Supplier<StreamingChatLanguageModel> jsonChatModelFactory, CamelCatalog catalog, int concurrency,
+            AdaptiveLimiter limiter, int batchSize, GenerationJournal journal) {
+        super(chatModelFactory, jsonChatModelFactory, catalog, concurrency, limiter, batchSize, journal);
     }
 
     @Override
@@ -41,15 +48,22 @@ public class EipsCatalogProcessor extends CatalogProcessor {
             throws InterruptedException {
         final String componentName = componentNames.get(i);
 
-        final List<AlpacaRecord> alpacaRecords = new ArrayList<>(1024);
         System.out.printf("[%s] Processing EIP %d of %d: %s%n", CatalogUtil.currentTime(), i, totalComponents, componentName);
 
         final EipModel componentModel = catalog.eipModel(componentName);
 
-        final List<EipModel.EipOptionModel> componentOptions = componentModel.getOptions();
-        processOption(alpacaRecords, componentName, componentOptions, "EIP");
+        try (RecordSink sink = CatalogUtil.openRecordSink(componentName)) {
+            final List<EipModel.EipOptionModel> componentOptions = componentModel.getOptions();
+            processOption(sink, componentName, componentOptions, "EIP");
+        }
+    }
 
-        CatalogUtil.saveRecords(alpacaRecords, componentName);
+    @Override
+    protected List<PromptTemplate> promptTemplates() {
+        final List<PromptTemplate> templates = new ArrayList<>(super.promptTemplates());
+        templates.add(QUESTION_GENERATOR_PROMPT_TEMPLATE);
+        templates.add(BATCH_GENERATOR_PROMPT_TEMPLATE);
+        return templates;
     }
 
     // We want to use a custom prompt, so we override the generator from the parent class
@@ -64,4 +78,9 @@ public class EipsCatalogProcessor extends CatalogProcessor {
         final Prompt prompt = QUESTION_GENERATOR_PROMPT_TEMPLATE.apply(variables);
         return prompt.toUserMessage();
     }
+
+    @Override
+    protected UserMessage generateBatchPrompt(String name, List<? extends BaseOptionModel> optionModels) {
+        return generateBatchPrompt(BATCH_GENERATOR_PROMPT_TEMPLATE, name, optionModels);
+    }
 }
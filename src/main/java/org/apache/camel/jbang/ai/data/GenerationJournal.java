@@ -0,0 +1,251 @@
+package org.apache.camel.jbang.ai.data;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.camel.jbang.ai.types.AlpacaRecord;
+
+/**
+ * An append-only journal of the options whose records were generated, one JSON line per option. Replaying it on
+ * restart skips the options already generated, so that an interrupted run only loses the options in flight.
+ * <p>
+ * The first line holds the settings of the run (the model and the prompts): the options journaled with other
+ * settings are discarded, so that changing the model or a prompt generates everything again. The journal is deleted
+ * once the run completes.
+ * <p>
+ * Each line is written to the file as soon as its option completes, so it survives a crash of the JVM. The file is
+ * synced to the disk at most every second, so that a crash of the machine loses at most about a second of work.
+ * <p>
+ * The journal is locked while it is open: a concurrent run of the same data type fails instead of writing over it.
+ */
+public final class GenerationJournal implements AutoCloseable {
+    private static final Path JOURNAL_DIR = Path.of(System.getProperty("user.home"), ".camel", "explain");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final long SYNC_INTERVAL_MILLIS = 1000;
+
+    /**
+     * The settings of the run, on the first line
+     */
+    record Header(String settings) {}
+
+    /**
+     * The records of an option
+     */
+    record Entry(String component, String type, String option, List<AlpacaRecord> records) {}
+
+    private final Path path;
+    private final FileChannel channel;
+    private final Map<String, List<AlpacaRecord>> completed;
+    private final ScheduledExecutorService syncer;
+    private String settings;
+    private boolean dirty;
+
+    private GenerationJournal(Path path, FileChannel channel, String settings,
+            Map<String, List<AlpacaRecord>> completed) {
+        this.path = path;
+        this.channel = channel;
+        this.settings = settings;
+        this.completed = completed;
+
+        this.syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "journal-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncer.scheduleWithFixedDelay(this::sync, SYNC_INTERVAL_MILLIS, SYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The default journal location for a given data type
+     */
+    public static Path defaultPath(String dataType) {
+        return JOURNAL_DIR.resolve(String.format("generate-%s.jsonl", dataType));
+    }
+
+    /**
+     * Opens the journal, replaying the options already generated. They are only used once the settings of the run
+     * are checked with {@link #checkSettings(String)}.
+     * @param path the journal file (created if it does not exist)
+     * @return the journal
+     * @throws IllegalStateException if the journal is used by another run
+     */
+    public static GenerationJournal open(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (tryLock(channel) == null) {
+                throw new IllegalStateException("The journal " + path + " is used by another run: wait for it to "
+                        + "complete before generating the same data type");
+            }
+
+            final Map<String, List<AlpacaRecord>> completed = new ConcurrentHashMap<>();
+            String settings = null;
+            final byte[] content = Files.readAllBytes(path);
+
+            // A crash may have left a partial last line: it is dropped, so that the next entries start on a new line
+            int end = content.length;
+            while (end > 0 && content[end - 1] != '\n') {
+                end--;
+            }
+            channel.truncate(end);
+            channel.position(end);
+
+            int lineNumber = 0;
+            for (String line : new String(content, 0, end, StandardCharsets.UTF_8).split("\n")) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                try {
+                    final JsonNode node = MAPPER.readTree(line);
+                    if (node.has("settings")) {
+                        settings = MAPPER.treeToValue(node, Header.class).settings();
+                    } else {
+                        final Entry entry = MAPPER.treeToValue(node, Entry.class);
+                        completed.put(key(entry.component(), entry.type(), entry.option()), entry.records());
+                    }
+                } catch (JsonProcessingException e) {
+                    System.err.printf("Ignoring the invalid line %d of the journal %s: %s%n", lineNumber, path,
+                            e.getOriginalMessage());
+                }
+            }
+
+            return new GenerationJournal(path, channel, settings, completed);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks the settings of the run against the ones of the journal. If they differ, the journaled options are
+     * discarded and the journal starts again with the given settings.
+     * @param settings describes the model and the prompts of the run
+     */
+    public synchronized void checkSettings(String settings) throws IOException {
+        if (settings.equals(this.settings)) {
+            if (!completed.isEmpty()) {
+                System.out.printf("Resuming from the journal %s: %d options already generated%n", path,
+                        completed.size());
+            }
+            return;
+        }
+
+        if (!completed.isEmpty()) {
+            System.out.printf("Discarding the journal %s: its %d options were generated with other settings%n", path,
+                    completed.size());
+            completed.clear();
+        }
+
+        channel.truncate(0);
+        channel.position(0);
+        write(MAPPER.writeValueAsString(new Header(settings)));
+        this.settings = settings;
+    }
+
+    /**
+     * Gets the records of an option generated by a previous run
+     * @return the records or null if the option was not generated
+     */
+    public List<AlpacaRecord> records(String component, String type, String option) {
+        return completed.get(key(component, type, option));
+    }
+
+    /**
+     * Journals the records of an option. They are not kept in memory: they were already written to the dataset
+     */
+    public void append(String component, String type, String option, List<AlpacaRecord> records) {
+        final String line;
+        try {
+            line = MAPPER.writeValueAsString(new Entry(component, type, option, records));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize the journal entry of " + component + " -> " + option, e);
+        }
+
+        synchronized (this) {
+            try {
+                write(line);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write to the journal " + path, e);
+            }
+        }
+    }
+
+    /**
+     * Removes the journal once the run has completed successfully. It is removed while still locked, so that another
+     * run never opens it in the meantime.
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(path);
+        close();
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Already open in this JVM
+            return null;
+        }
+    }
+
+    private void write(String line) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        dirty = true;
+    }
+
+    private synchronized void sync() {
+        if (!dirty || !channel.isOpen()) {
+            return;
+        }
+
+        try {
+            channel.force(false);
+            dirty = false;
+        } catch (IOException e) {
+            System.err.printf("Failed to sync the journal %s: %s%n", path, e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        syncer.shutdownNow();
+
+        synchronized (this) {
+            if (channel.isOpen()) {
+                channel.force(false);
+                // Also releases the lock
+                channel.close();
+            }
+        }
+    }
+
+    private static String key(String component, String type, String option) {
+        return component + '\u0000' + type + '\u0000' + option;
+    }
+}
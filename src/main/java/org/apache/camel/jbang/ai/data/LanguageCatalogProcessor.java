@@ -1,17 +1,20 @@
 package org.apache.camel.jbang.ai.data;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
-import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import org.apache.camel.catalog.CamelCatalog;
-import org.apache.camel.jbang.ai.types.AlpacaRecord;
 import org.apache.camel.jbang.ai.util.CatalogUtil;
+import org.apache.camel.jbang.ai.util.sink.RecordSink;
+import org.apache.camel.jbang.ai.util.steps.AdaptiveLimiter;
 import org.apache.camel.tooling.model.LanguageModel;
 
 public class LanguageCatalogProcessor extends CatalogProcessor {
-    public LanguageCatalogProcessor(OpenAiStreamingChatModel chatModel, CamelCatalog catalog) {
-        super(chatModel, catalog);
+    public LanguageCatalogProcessor(Supplier<StreamingChatLanguageModel> chatModelFactory,
+            Supplier<StreamingChatLanguageModel> jsonChatModelFactory, CamelCatalog catalog, int concurrency,
+            AdaptiveLimiter limiter, int batchSize, GenerationJournal journal) {
+        super(chatModelFactory, jsonChatModelFactory, catalog, concurrency, limiter, batchSize, journal);
     }
 
     @Override
@@ -27,14 +30,13 @@ public class LanguageCatalogProcessor extends CatalogProcessor {
             throws InterruptedException {
         final String componentName = componentNames.get(i);
 
-        final List<AlpacaRecord> alpacaRecords = new ArrayList<>(1024);
         System.out.printf("[%s] Processing languages %d of %d: %s%n", CatalogUtil.currentTime(), i, totalComponents, componentName);
 
         final LanguageModel componentModel = catalog.languageModel(componentName);
 
-        final List<LanguageModel.LanguageOptionModel> componentOptions = componentModel.getOptions();
-        processOption(alpacaRecords, componentName, componentOptions, "language");
-
-        CatalogUtil.saveRecords(alpacaRecords, componentName);
+        try (RecordSink sink = CatalogUtil.openRecordSink(componentName)) {
+            final List<LanguageModel.LanguageOptionModel> componentOptions = componentModel.getOptions();
+            processOption(sink, componentName, componentOptions, "language");
+        }
     }
 }
@@ -0,0 +1,53 @@
+package org.apache.camel.jbang.ai.data;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the stages of the record generation (the question, then the answer) on a bounded pool, with a queue between
+ * the stages. The answers waiting in the queue run before the next questions, so that the workers always keep
+ * requests of both stages in flight: the questions of the upcoming options are generated while the answers of the
+ * earlier ones are.
+ */
+final class StagedExecutor {
+
+    /**
+     * The stages, in order of priority
+     */
+    enum Stage {
+        ANSWER,
+        QUESTION
+    }
+
+    private record StageTask(Stage stage, long sequence, Runnable task) implements Runnable, Comparable<StageTask> {
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int compareTo(StageTask other) {
+            final int byStage = stage.compareTo(other.stage);
+            return byStage != 0 ? byStage : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final ThreadPoolExecutor executor;
+
+    StagedExecutor(int threads) {
+        // Only execute() keeps the tasks comparable: submit() would wrap them
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>());
+    }
+
+    void execute(Stage stage, Runnable task) {
+        executor.execute(new StageTask(stage, sequence.getAndIncrement(), task));
+    }
+
+    void shutdownNow() {
+        executor.shutdownNow();
+    }
+}
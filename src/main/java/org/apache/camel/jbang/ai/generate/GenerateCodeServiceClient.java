@@ -1,21 +1,29 @@
 package org.apache.camel.jbang.ai.generate;
 
+import java.io.PrintStream;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import dev.langchain4j.model.input.Prompt;
 import dev.langchain4j.model.input.PromptTemplate;
-import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
 import dev.langchain4j.model.output.Response;
 import dev.langchain4j.store.embedding.EmbeddingMatch;
+import org.apache.camel.jbang.ai.serve.ExplainRequest;
+import org.apache.camel.jbang.ai.serve.ExplainServer;
+import org.apache.camel.jbang.ai.serve.ExplainServerClient;
+import org.apache.camel.jbang.ai.store.VectorStoreConfig;
+import org.apache.camel.jbang.ai.util.ContextPacker;
+import org.apache.camel.jbang.ai.util.ResourceRegistry;
+import org.apache.camel.jbang.ai.util.RetrievalPolicy;
 
-import static org.apache.camel.jbang.ai.util.ModelUtil.buildModel;
 import static org.apache.camel.jbang.ai.util.RagUtil.findRelevant;
 import static org.apache.camel.jbang.ai.util.RagUtil.toPrompt;
 
@@ -34,35 +42,58 @@ public class GenerateCodeServiceClient {
     private final String modelName;
     private final String systemPrompt;
     private final String what;
-    private final String host;
-    private final int port;
-    private final String collectionName;
-
+    private final VectorStoreConfig storeConfig;
+    private final RetrievalPolicy retrievalPolicy;
+    private final ContextPacker contextPacker;
+    private final String serverUrl;
 
     public GenerateCodeServiceClient(
-            String url, String apiKey, String modelName, String systemPrompt, String what, String host,
-            int port, String collectionName) {
+            String url, String apiKey, String modelName, String systemPrompt, String what,
+            VectorStoreConfig storeConfig, RetrievalPolicy retrievalPolicy, ContextPacker contextPacker,
+            String serverUrl) {
         this.url = url;
         this.apiKey = apiKey;
         this.modelName = modelName;
         this.systemPrompt = systemPrompt;
         this.what = what;
-        this.host = host;
-        this.port = port;
-        this.collectionName = collectionName;
+        this.storeConfig = storeConfig;
+        this.retrievalPolicy = retrievalPolicy;
+        this.contextPacker = contextPacker;
+        this.serverUrl = serverUrl;
     }
 
     public int run() throws InterruptedException {
-        OpenAiStreamingChatModel chatModel = buildModel(url, apiKey, modelName);
+        return run(System.out);
+    }
+
+    /**
+     * Runs the request, streaming the response to the given output
+     * @param out where to print the response
+     * @return the exit code
+     */
+    public int run(PrintStream out) throws InterruptedException {
+        if (serverUrl != null) {
+            return ExplainServerClient.forward(serverUrl, ExplainServer.GENERATE_CODE_PATH,
+                    ExplainRequest.of(what, systemPrompt, modelName, retrievalPolicy, contextPacker, null), out);
+        }
+
+        StreamingChatLanguageModel chatModel = ResourceRegistry.chatModel(url, apiKey, modelName);
 
         final List<ChatMessage> messages = createChatMessages();
 
         CountDownLatch latch = new CountDownLatch(1);
+        // Set once the caller stops waiting, since it may close the output while the response is still streaming
+        AtomicBoolean abandoned = new AtomicBoolean();
 
         chatModel.generate(messages, new StreamingResponseHandler<>() {
             @Override
             public void onNext(String s) {
-                System.out.print(s);
+                synchronized (out) {
+                    if (!abandoned.get()) {
+                        out.print(s);
+                        out.flush();
+                    }
+                }
             }
 
             @Override
@@ -81,14 +112,26 @@ public class GenerateCodeServiceClient {
         });
 
 
-        latch.await(2, TimeUnit.MINUTES);
+        if (!latch.await(2, TimeUnit.MINUTES)) {
+            abandon(out, abandoned);
+        }
         return 0;
     }
 
+    /*
+     * Holds the lock of the output, so that no token is being printed once this returns
+     */
+    private static void abandon(PrintStream out, AtomicBoolean abandoned) {
+        synchronized (out) {
+            abandoned.set(true);
+        }
+    }
+
     private List<ChatMessage> createChatMessages() {
-        final List<EmbeddingMatch<TextSegment>> relevantEmbeddings = findRelevant(host, port, collectionName, what);
+        final List<EmbeddingMatch<TextSegment>> relevantEmbeddings =
+                findRelevant(storeConfig.embeddingStore(), what, retrievalPolicy);
 
-        final Prompt prompt = toPrompt(PROMPT_TEMPLATE, relevantEmbeddings, what);
+        final Prompt prompt = toPrompt(PROMPT_TEMPLATE, contextPacker.pack(relevantEmbeddings), what);
 
         List<ChatMessage> messages;
         if (systemPrompt != null) {
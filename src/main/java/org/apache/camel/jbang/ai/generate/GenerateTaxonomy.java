@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.camel.catalog.CamelCatalog;
 import org.apache.camel.catalog.DefaultCamelCatalog;
@@ -73,7 +74,11 @@ public class GenerateTaxonomy {
         }
 
 
-        File dataSetFile = new File(documentPath, componentName + ".json");
+        // The JSON Lines files written by the data generation, or the JSON arrays of the older ones
+        File dataSetFile = new File(documentPath, componentName + ".jsonl");
+        if (!dataSetFile.exists()) {
+            dataSetFile = new File(documentPath, componentName + ".json");
+        }
         if (!dataSetFile.exists()) {
             throw new IOException(String.format("Dataset file %s does not exist", dataSetFile.getPath()));
         }
@@ -81,7 +86,10 @@ public class GenerateTaxonomy {
         ObjectMapper mapper = new ObjectMapper();
 
         StringBuilder sb = new StringBuilder();
-        final AlpacaRecord[] alpacaRecords = mapper.readValue(dataSetFile, AlpacaRecord[].class);
+        final List<AlpacaRecord> alpacaRecords;
+        try (MappingIterator<AlpacaRecord> iterator = mapper.readerFor(AlpacaRecord.class).readValues(dataSetFile)) {
+            alpacaRecords = iterator.readAll();
+        }
         for (AlpacaRecord alpacaRecord : alpacaRecords) {
             final String answer = filter(alpacaRecord.getOutput());
 
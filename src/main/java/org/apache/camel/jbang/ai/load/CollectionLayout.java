@@ -0,0 +1,126 @@
+package org.apache.camel.jbang.ai.load;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.grpc.Collections;
+import org.apache.camel.jbang.ai.util.CatalogUtil;
+
+/**
+ * How the Qdrant collection stores its vectors, payload and indexes. Trades memory for latency and recall.
+ */
+public final class CollectionLayout {
+    private static final float SCALAR_QUANTILE = 0.99f;
+    private static final List<String> INDEXED_FIELDS = List.of(CatalogUtil.METADATA_COMPONENT,
+            CatalogUtil.METADATA_OPTION, CatalogUtil.METADATA_KIND, CatalogUtil.METADATA_GROUP,
+            CatalogUtil.METADATA_CAMEL_VERSION);
+
+    private final String quantization;
+    private final int hnswM;
+    private final int hnswEfConstruct;
+    private final boolean onDiskVectors;
+    private final boolean onDiskPayload;
+
+    /**
+     * Constructor
+     * @param quantization the quantization to use: none, scalar (int8) or binary
+     * @param hnswM the number of edges per node in the HNSW graph (0 for the Qdrant default)
+     * @param hnswEfConstruct the number of neighbours considered when building the HNSW graph (0 for the Qdrant default)
+     * @param onDiskVectors whether to keep the original vectors on disk instead of in RAM
+     * @param onDiskPayload whether to keep the payload on disk instead of in RAM
+     */
+    public CollectionLayout(String quantization, int hnswM, int hnswEfConstruct, boolean onDiskVectors, boolean onDiskPayload) {
+        // The levels of the HNSW graph are drawn with a factor of 1 / ln(m)
+        if (hnswM == 1 || hnswM < 0) {
+            throw new IllegalArgumentException("The number of edges per node in the HNSW index must be 0 (for the "
+                    + "default) or at least 2: " + hnswM);
+        }
+        if (hnswEfConstruct < 0) {
+            throw new IllegalArgumentException("The number of neighbours considered when building the HNSW index must "
+                    + "be 0 (for the default) or positive: " + hnswEfConstruct);
+        }
+
+        this.quantization = quantization;
+        this.hnswM = hnswM;
+        this.hnswEfConstruct = hnswEfConstruct;
+        this.onDiskVectors = onDiskVectors;
+        this.onDiskPayload = onDiskPayload;
+
+        // Fail early, before anything is written
+        quantizationConfig();
+    }
+
+    public int hnswM() {
+        return hnswM;
+    }
+
+    public int hnswEfConstruct() {
+        return hnswEfConstruct;
+    }
+
+    public Collections.CreateCollection toCreateCollection(
+            String collectionName, Collections.Distance distance, int dimension) {
+        final Collections.VectorParams vectorParams = Collections.VectorParams.newBuilder()
+                .setDistance(distance)
+                .setSize(dimension)
+                .setOnDisk(onDiskVectors)
+                .build();
+
+        Collections.CreateCollection.Builder builder = Collections.CreateCollection.newBuilder()
+                .setCollectionName(collectionName)
+                .setVectorsConfig(Collections.VectorsConfig.newBuilder().setParams(vectorParams).build())
+                .setOnDiskPayload(onDiskPayload);
+
+        final Collections.HnswConfigDiff.Builder hnswConfig = Collections.HnswConfigDiff.newBuilder();
+        if (hnswM > 0) {
+            hnswConfig.setM(hnswM);
+        }
+        if (hnswEfConstruct > 0) {
+            hnswConfig.setEfConstruct(hnswEfConstruct);
+        }
+        builder.setHnswConfig(hnswConfig.build());
+
+        final Collections.QuantizationConfig quantizationConfig = quantizationConfig();
+        if (quantizationConfig != null) {
+            builder.setQuantizationConfig(quantizationConfig);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Creates keyword indexes on the payload fields the searches filter on. Creating an index that already exists is
+     * a no-op in Qdrant.
+     */
+    public void createPayloadIndexes(QdrantClient client, String collectionName)
+            throws ExecutionException, InterruptedException {
+        for (String field : INDEXED_FIELDS) {
+            client.createPayloadIndexAsync(collectionName, field, Collections.PayloadSchemaType.Keyword, null, true,
+                    null, null).get();
+        }
+    }
+
+    /*
+     * The quantized vectors are always kept in RAM: they are small and they are what the search reads first. With
+     * on-disk vectors, only the rescoring step touches the disk.
+     */
+    private Collections.QuantizationConfig quantizationConfig() {
+        return switch (quantization) {
+            case "none" -> null;
+            case "scalar" -> Collections.QuantizationConfig.newBuilder()
+                    .setScalar(Collections.ScalarQuantization.newBuilder()
+                            .setType(Collections.QuantizationType.Int8)
+                            .setQuantile(SCALAR_QUANTILE)
+                            .setAlwaysRam(true)
+                            .build())
+                    .build();
+            case "binary" -> Collections.QuantizationConfig.newBuilder()
+                    .setBinary(Collections.BinaryQuantization.newBuilder()
+                            .setAlwaysRam(true)
+                            .build())
+                    .build();
+            default -> throw new IllegalArgumentException("Invalid quantization: " + quantization);
+        };
+    }
+}
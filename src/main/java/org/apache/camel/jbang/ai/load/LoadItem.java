@@ -0,0 +1,12 @@
+package org.apache.camel.jbang.ai.load;
+
+import dev.langchain4j.data.segment.TextSegment;
+
+/**
+ * A catalog entry to be loaded into the vector DB, along with its deterministic point ID
+ * @param component the component the entry belongs to
+ * @param id the point ID (see {@link org.apache.camel.jbang.ai.util.CatalogUtil#toPointId})
+ * @param segment the text segment to embed
+ */
+public record LoadItem(String component, String id, TextSegment segment) {
+}
@@ -0,0 +1,126 @@
+package org.apache.camel.jbang.ai.load;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A checkpoint journal for the vector load. Each line records a component whose options have all been written to
+ * the vector DB. Batches may span several components, so a component is only recorded once every batch holding
+ * any of its options has been written. Each line is forced to disk before moving on, so the journal survives
+ * crashes and interruptions.
+ */
+public final class LoadJournal implements AutoCloseable {
+    private static final Path JOURNAL_DIR = Path.of(System.getProperty("user.home"), ".camel", "explain");
+
+    private final Path path;
+    private final FileChannel channel;
+    private final Set<String> completed;
+    private final Map<String, Integer> pending = new HashMap<>();
+    private final Set<String> expected = new HashSet<>();
+
+    private LoadJournal(Path path, FileChannel channel, Set<String> completed) {
+        this.path = path;
+        this.channel = channel;
+        this.completed = completed;
+    }
+
+    /**
+     * The default journal location for a given collection
+     */
+    public static Path defaultPath(String host, int port, String collectionName) {
+        return JOURNAL_DIR.resolve(String.format("load-%s-%s-%d.journal", collectionName, host, port));
+    }
+
+    /**
+     * Opens the journal
+     * @param path the journal file
+     * @param resume whether to keep the components recorded by a previous run. If false, the journal is reset.
+     * @return the journal
+     */
+    public static LoadJournal open(Path path, boolean resume) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+
+        final Set<String> completed = new HashSet<>();
+        if (resume && Files.exists(path)) {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    completed.add(line.trim());
+                }
+            }
+        }
+
+        final FileChannel channel = resume
+                ? FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+                : FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+
+        return new LoadJournal(path, channel, completed);
+    }
+
+    /**
+     * Whether the component was fully written by a previous run
+     */
+    public boolean isCompleted(String component) {
+        return completed.contains(component);
+    }
+
+    /**
+     * Tells the journal how many items of the component were submitted for writing. Must be called once the reader
+     * is done with the component.
+     */
+    public synchronized void expect(String component, int items) {
+        expected.add(component);
+        if (pending.merge(component, items, Integer::sum) == 0) {
+            complete(component);
+        }
+    }
+
+    /**
+     * Records that the given items were written
+     */
+    public synchronized void written(List<LoadItem> items) {
+        for (LoadItem item : items) {
+            final String component = item.component();
+
+            // Writers may get ahead of the reader: the count only settles once the component is expected
+            if (pending.merge(component, -1, Integer::sum) == 0 && expected.contains(component)) {
+                complete(component);
+            }
+        }
+    }
+
+    /**
+     * Removes the journal once the load has finished successfully
+     */
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    private void complete(String component) {
+        pending.remove(component);
+        expected.remove(component);
+
+        try {
+            channel.write(ByteBuffer.wrap((component + System.lineSeparator()).getBytes(StandardCharsets.UTF_8)));
+            channel.force(false);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to update the load journal " + path, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
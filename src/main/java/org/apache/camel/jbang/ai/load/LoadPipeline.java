@@ -0,0 +1,206 @@
+package org.apache.camel.jbang.ai.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+
+/**
+ * A staged ingestion pipeline: the catalog reader submits batches of items, a pool of embedding workers turns
+ * them into vectors and a pool of writers sends them to the vector DB. The stages are connected by bounded
+ * queues, so a slow stage applies backpressure to the ones before it.
+ */
+public final class LoadPipeline implements AutoCloseable {
+    private static final List<LoadItem> END_OF_ITEMS = List.of();
+    private static final EmbeddedBatch END_OF_EMBEDDINGS = new EmbeddedBatch(List.of(), List.of());
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private record EmbeddedBatch(List<LoadItem> items, List<Embedding> embeddings) {}
+
+    /**
+     * Writes a batch of embedded items. Called concurrently by the writer threads.
+     */
+    @FunctionalInterface
+    public interface Writer {
+        void write(List<LoadItem> items, List<Embedding> embeddings);
+    }
+
+    private final EmbeddingModel embeddingModel;
+    private final Writer writer;
+    private final int embedThreads;
+    private final int writers;
+
+    private final BlockingQueue<List<LoadItem>> itemQueue;
+    private final BlockingQueue<EmbeddedBatch> embeddedQueue;
+    private final ExecutorService embedExecutor;
+    private final ExecutorService writeExecutor;
+    private final List<Future<?>> embedTasks = new ArrayList<>();
+    private final List<Future<?>> writeTasks = new ArrayList<>();
+
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    public LoadPipeline(
+            EmbeddingModel embeddingModel, Writer writer, int embedThreads, int writers) {
+        if (embedThreads < 1) {
+            throw new IllegalArgumentException("The number of embedding threads must be greater than zero: " + embedThreads);
+        }
+        if (writers < 1) {
+            throw new IllegalArgumentException("The number of writers must be greater than zero: " + writers);
+        }
+
+        this.embeddingModel = embeddingModel;
+        this.writer = writer;
+        this.embedThreads = embedThreads;
+        this.writers = writers;
+
+        // Keep a couple of batches ready per worker, but no more: memory stays bounded regardless of the catalog size
+        this.itemQueue = new ArrayBlockingQueue<>(embedThreads * 2 + 1);
+        this.embeddedQueue = new ArrayBlockingQueue<>(writers * 2 + 1);
+        this.embedExecutor = Executors.newFixedThreadPool(embedThreads, namedThreads("embed"));
+        this.writeExecutor = Executors.newFixedThreadPool(writers, namedThreads("write"));
+    }
+
+    /**
+     * Starts the embedding workers and the writers
+     */
+    public void start() {
+        for (int i = 0; i < embedThreads; i++) {
+            embedTasks.add(embedExecutor.submit(this::embed));
+        }
+
+        for (int i = 0; i < writers; i++) {
+            writeTasks.add(writeExecutor.submit(this::write));
+        }
+    }
+
+    /**
+     * Submits a batch of items for embedding. Blocks while the embedding workers are busy.
+     * @param batch the items to embed. The pipeline takes ownership of the list.
+     * @throws InterruptedException if interrupted while waiting for room in the queue
+     */
+    public void submit(List<LoadItem> batch) throws InterruptedException {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        put(itemQueue, batch);
+    }
+
+    /**
+     * Signals that no more batches will be submitted, then waits for every pending batch to be embedded and written
+     * @return the number of items written
+     * @throws InterruptedException if interrupted while waiting for the workers
+     * @throws ExecutionException if any of the workers failed (an {@link Error} of a worker is rethrown as it is)
+     */
+    public int finish() throws InterruptedException, ExecutionException {
+        for (int i = 0; i < embedThreads; i++) {
+            put(itemQueue, END_OF_ITEMS);
+        }
+        awaitAll(embedTasks);
+
+        for (int i = 0; i < writers; i++) {
+            put(embeddedQueue, END_OF_EMBEDDINGS);
+        }
+        awaitAll(writeTasks);
+
+        return written.get();
+    }
+
+    @Override
+    public void close() {
+        embedExecutor.shutdownNow();
+        writeExecutor.shutdownNow();
+    }
+
+    private Void embed() throws InterruptedException {
+        try {
+            while (true) {
+                final List<LoadItem> items = itemQueue.take();
+                if (items == END_OF_ITEMS) {
+                    return null;
+                }
+
+                final List<TextSegment> segments = items.stream().map(LoadItem::segment).toList();
+                final List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
+                put(embeddedQueue, new EmbeddedBatch(items, embeddings));
+            }
+        } catch (Throwable e) {
+            // Includes the errors (i.e.: running out of memory in the embedding model), which also kill the worker
+            failure.compareAndSet(null, e);
+            throw e;
+        }
+    }
+
+    private Void write() throws InterruptedException {
+        try {
+            while (true) {
+                final EmbeddedBatch batch = embeddedQueue.take();
+                if (batch == END_OF_EMBEDDINGS) {
+                    return null;
+                }
+
+                writer.write(batch.items(), batch.embeddings());
+                written.addAndGet(batch.items().size());
+            }
+        } catch (Throwable e) {
+            // Includes the errors (i.e.: running out of memory in the embedding model), which also kill the worker
+            failure.compareAndSet(null, e);
+            throw e;
+        }
+    }
+
+    /*
+     * Waits for room in the queue, but gives up as soon as any stage has failed: otherwise a dead consumer would leave
+     * the producers blocked forever.
+     */
+    private <T> void put(BlockingQueue<T> queue, T element) throws InterruptedException {
+        while (!queue.offer(element, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+            final Throwable cause = failure.get();
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            if (cause != null) {
+                throw new IllegalStateException("The load pipeline has failed", cause);
+            }
+        }
+    }
+
+    /*
+     * The errors of the workers are rethrown as they are, so that they are not mistaken for an ordinary failure
+     */
+    private static void awaitAll(List<Future<?>> tasks) throws InterruptedException, ExecutionException {
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static ThreadFactory namedThreads(String stage) {
+        final AtomicInteger counter = new AtomicInteger();
+
+        return r -> {
+            Thread thread = new Thread(r, "load-" + stage + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,239 @@
+package org.apache.camel.jbang.ai.load;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import org.apache.camel.jbang.ai.store.LocalVectorStore;
+
+/**
+ * Writes the embedded items to a {@link LocalVectorStore}. The store, along with its HNSW index, is rebuilt on
+ * {@link #flush()}.
+ * <p>
+ * Until then, each batch of items is appended to a checkpoint file next to the store, and only acknowledged once it
+ * is forced to disk, so that the load journal can record the completed components. A resumed load replays the
+ * checkpoint on top of the existing store. The checkpoint is deleted once the store is written.
+ */
+public final class LocalStoreWriter implements VectorWriter {
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+    private record Entry(TextSegment segment, float[] vector) {}
+
+    private final Path path;
+    private final int hnswM;
+    private final int hnswEfConstruct;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final Path checkpointPath;
+    private final FileChannel checkpoint;
+
+    /**
+     * Constructor
+     * @param path the store directory
+     * @param keepExisting whether to start from the entries of the existing store and of the checkpoint of an
+     *                     interrupted load, if any
+     * @param hnswM the number of edges per node in the HNSW graph (0 for the default)
+     * @param hnswEfConstruct the number of neighbours considered when building the HNSW graph (0 for the default)
+     */
+    public LocalStoreWriter(Path path, boolean keepExisting, int hnswM, int hnswEfConstruct) throws IOException {
+        this.path = path;
+        this.hnswM = hnswM;
+        this.hnswEfConstruct = hnswEfConstruct;
+        this.checkpointPath = path.resolveSibling(path.getFileName() + CHECKPOINT_SUFFIX);
+
+        if (keepExisting && LocalVectorStore.exists(path)) {
+            final LocalVectorStore store = LocalVectorStore.open(path);
+            for (int i = 0; i < store.size(); i++) {
+                entries.put(store.id(i), new Entry(store.segment(i), store.vector(i)));
+            }
+        }
+
+        long checkpointLength = 0;
+        if (keepExisting && Files.exists(checkpointPath)) {
+            checkpointLength = replayCheckpoint();
+        }
+
+        Files.createDirectories(checkpointPath.toAbsolutePath().getParent());
+        this.checkpoint = FileChannel.open(checkpointPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        // Drops the batches of another load, or the partial last batch of an interrupted one
+        checkpoint.truncate(checkpointLength);
+        checkpoint.position(checkpointLength);
+    }
+
+    @Override
+    public synchronized Set<String> existingIds() {
+        return Set.copyOf(entries.keySet());
+    }
+
+    /**
+     * Appends the items to the checkpoint and acknowledges them once it is forced to disk
+     */
+    @Override
+    public void upsert(List<LoadItem> items, List<Embedding> embeddings, Consumer<List<LoadItem>> onAccepted) {
+        final ByteBuffer batch = encode(items, embeddings);
+
+        synchronized (this) {
+            try {
+                while (batch.hasRemaining()) {
+                    checkpoint.write(batch);
+                }
+                checkpoint.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write the checkpoint " + checkpointPath, e);
+            }
+
+            for (int i = 0; i < items.size(); i++) {
+                entries.put(items.get(i).id(), new Entry(items.get(i).segment(), embeddings.get(i).vector()));
+            }
+        }
+
+        onAccepted.accept(items);
+    }
+
+    @Override
+    public synchronized void updateMetadata(String key, String value) {
+        entries.replaceAll((id, entry) -> {
+            final Metadata metadata = entry.segment().metadata();
+            if (value.equals(metadata.getString(key))) {
+                return entry;
+            }
+
+            final TextSegment segment = TextSegment.from(entry.segment().text(), metadata.copy().put(key, value));
+            return new Entry(segment, entry.vector());
+        });
+    }
+
+    @Override
+    public synchronized void delete(Collection<String> ids) {
+        ids.forEach(entries::remove);
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        final List<String> ids = new ArrayList<>(entries.size());
+        final List<TextSegment> segments = new ArrayList<>(entries.size());
+        final List<float[]> vectors = new ArrayList<>(entries.size());
+        entries.forEach((id, entry) -> {
+            ids.add(id);
+            segments.add(entry.segment());
+            vectors.add(entry.vector());
+        });
+
+        System.out.printf("Building the local vector store with %d options at %s%n", ids.size(), path);
+        LocalVectorStore.write(path, ids, segments, vectors, hnswM, hnswEfConstruct);
+
+        checkpoint.close();
+        Files.deleteIfExists(checkpointPath);
+    }
+
+    /**
+     * Adds the entries of the checkpoint
+     * @return the length of the complete batches of the checkpoint
+     */
+    private long replayCheckpoint() throws IOException {
+        final ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(checkpointPath));
+
+        int batches = 0;
+        int valid = 0;
+        try {
+            while (content.remaining() >= Integer.BYTES) {
+                final int length = content.getInt();
+                if (length > content.remaining()) {
+                    // Interrupted while writing the batch
+                    break;
+                }
+
+                final ByteBuffer batch = content.slice(content.position(), length);
+                final int count = batch.getInt();
+                for (int i = 0; i < count; i++) {
+                    final String id = getString(batch);
+                    final String text = getString(batch);
+
+                    final int metadataCount = batch.getInt();
+                    final Map<String, Object> metadata = new HashMap<>(metadataCount * 2);
+                    for (int j = 0; j < metadataCount; j++) {
+                        metadata.put(getString(batch), getString(batch));
+                    }
+
+                    final float[] vector = new float[batch.getInt()];
+                    batch.asFloatBuffer().get(vector);
+                    batch.position(batch.position() + vector.length * Float.BYTES);
+
+                    entries.put(id, new Entry(TextSegment.from(text, new Metadata(metadata)), vector));
+                }
+
+                content.position(content.position() + length);
+                valid = content.position();
+                batches++;
+            }
+        } catch (BufferUnderflowException e) {
+            System.err.printf("Ignoring the invalid end of the checkpoint %s%n", checkpointPath);
+        }
+
+        System.out.printf("Resuming from the checkpoint %s: %d batches already written%n", checkpointPath, batches);
+        return valid;
+    }
+
+    private static ByteBuffer encode(List<LoadItem> items, List<Embedding> embeddings) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            // The length of the batch, filled in below
+            out.writeInt(0);
+            out.writeInt(items.size());
+            for (int i = 0; i < items.size(); i++) {
+                final TextSegment segment = items.get(i).segment();
+                putString(out, items.get(i).id());
+                putString(out, segment.text());
+
+                final Map<String, Object> metadata = segment.metadata().toMap();
+                out.writeInt(metadata.size());
+                for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+                    putString(out, entry.getKey());
+                    putString(out, String.valueOf(entry.getValue()));
+                }
+
+                final float[] vector = embeddings.get(i).vector();
+                out.writeInt(vector.length);
+                for (float v : vector) {
+                    out.writeFloat(v);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        final ByteBuffer batch = ByteBuffer.wrap(bytes.toByteArray());
+        batch.putInt(0, batch.capacity() - Integer.BYTES);
+        return batch;
+    }
+
+    private static void putString(DataOutputStream out, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
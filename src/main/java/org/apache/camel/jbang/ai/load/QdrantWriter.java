@@ -0,0 +1,220 @@
+package org.apache.camel.jbang.ai.load;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import dev.langchain4j.data.embedding.Embedding;
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.grpc.Points;
+
+import static io.qdrant.client.ConditionFactory.hasId;
+import static io.qdrant.client.ConditionFactory.matchKeyword;
+import static io.qdrant.client.PointIdFactory.id;
+import static io.qdrant.client.ValueFactory.value;
+import static io.qdrant.client.VectorsFactory.vectors;
+import static io.qdrant.client.WithPayloadSelectorFactory.enable;
+
+/**
+ * Writes points with caller-provided IDs to a Qdrant collection. The payload layout matches the one used by
+ * langchain4j's {@code QdrantEmbeddingStore}, so the points can be searched through it.
+ * <p>
+ * Upserts are pipelined: they are sent without waiting for Qdrant to apply them ({@code wait=false}), with at most
+ * a fixed number of requests in flight. Call {@link #flush()} to wait for all of them to be applied.
+ * <p>
+ * The acceptance callbacks run on a thread of the writer rather than on the gRPC one, since they sync the load journal
+ * to the disk.
+ */
+public final class QdrantWriter implements VectorWriter {
+    public static final String PAYLOAD_TEXT_KEY = "text_segment";
+
+    private static final int PAGE_SIZE = 1000;
+
+    // Content-derived IDs are name-based UUIDs, so they never match the nil UUID
+    private static final Points.PointId BARRIER_ID = id(new UUID(0, 0));
+
+    private final QdrantClient client;
+    private final String collectionName;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    // A single thread keeps the callbacks in order. It stops when idle, so the writer needs no closing.
+    private final Executor callbackExecutor = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), r -> {
+                final Thread thread = new Thread(r, "qdrant-writer-callback");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    public QdrantWriter(QdrantClient client, String collectionName, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("The number of in-flight requests must be greater than zero: " + maxInFlight);
+        }
+
+        this.client = client;
+        this.collectionName = collectionName;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Lists the IDs of all the points currently in the collection
+     * @return the point IDs
+     */
+    @Override
+    public Set<String> existingIds() throws ExecutionException, InterruptedException {
+        final Set<String> ids = new HashSet<>();
+
+        Points.ScrollPoints.Builder request = Points.ScrollPoints.newBuilder()
+                .setCollectionName(collectionName)
+                .setLimit(PAGE_SIZE)
+                .setWithPayload(enable(false));
+
+        while (true) {
+            final Points.ScrollResponse response = client.scrollAsync(request.build()).get();
+            for (Points.RetrievedPoint point : response.getResultList()) {
+                ids.add(point.getId().getUuid());
+            }
+
+            if (!response.hasNextPageOffset()) {
+                return ids;
+            }
+            request.setOffset(response.getNextPageOffset());
+        }
+    }
+
+    /**
+     * Sends the points to Qdrant without waiting for them to be applied. Blocks while the maximum number of requests
+     * is in flight.
+     * @param items the items to write
+     * @param embeddings the embeddings for the items
+     * @param onAccepted called with the items once Qdrant has accepted them
+     */
+    @Override
+    public void upsert(List<LoadItem> items, List<Embedding> embeddings, Consumer<List<LoadItem>> onAccepted) {
+        checkFailure();
+
+        final List<Points.PointStruct> points = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            points.add(toPoint(items.get(i), embeddings.get(i)));
+        }
+
+        final Points.UpsertPoints request = Points.UpsertPoints.newBuilder()
+                .setCollectionName(collectionName)
+                .setWait(false)
+                .addAllPoints(points)
+                .build();
+
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while writing to Qdrant", e);
+        }
+
+        final ListenableFuture<Points.UpdateResult> future = client.upsertAsync(request);
+        Futures.addCallback(future, new FutureCallback<>() {
+            @Override
+            public void onSuccess(Points.UpdateResult result) {
+                try {
+                    onAccepted.accept(items);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    inFlight.release();
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable throwable) {
+                failure.compareAndSet(null, throwable);
+                inFlight.release();
+            }
+        }, callbackExecutor);
+    }
+
+    /**
+     * Waits for every in-flight upsert to be acknowledged and then for Qdrant to apply them. Qdrant applies the
+     * updates to a shard in order, so once a waited-for operation completes on a shard, all the earlier ones have too.
+     * The barrier selects the points with a filter rather than by ID, so that it is sent to every shard and not only
+     * to the one owning the ID.
+     */
+    @Override
+    public void flush() throws ExecutionException, InterruptedException {
+        inFlight.acquire(maxInFlight);
+        try {
+            checkFailure();
+
+            final Points.DeletePoints barrier = Points.DeletePoints.newBuilder()
+                    .setCollectionName(collectionName)
+                    .setWait(true)
+                    .setPoints(Points.PointsSelector.newBuilder()
+                            .setFilter(Points.Filter.newBuilder().addMust(hasId(BARRIER_ID))))
+                    .build();
+
+            client.deleteAsync(barrier).get();
+        } finally {
+            inFlight.release(maxInFlight);
+        }
+    }
+
+    private void checkFailure() {
+        final Throwable cause = failure.get();
+        if (cause != null) {
+            throw new RuntimeException("Failed to write to Qdrant", cause);
+        }
+    }
+
+    /**
+     * Sets the payload entry on the points whose value differs, in a single filtered update
+     */
+    @Override
+    public void updateMetadata(String key, String value) throws ExecutionException, InterruptedException {
+        final Points.Filter filter = Points.Filter.newBuilder().addMustNot(matchKeyword(key, value)).build();
+
+        client.setPayloadAsync(collectionName, Map.of(key, value(value)), filter, true, null, null).get();
+    }
+
+    @Override
+    public void delete(Collection<String> ids) throws ExecutionException, InterruptedException {
+        final List<Points.PointId> pointIds = new ArrayList<>(PAGE_SIZE);
+        for (String pointId : ids) {
+            pointIds.add(id(UUID.fromString(pointId)));
+
+            if (pointIds.size() == PAGE_SIZE) {
+                client.deleteAsync(collectionName, pointIds).get();
+                pointIds.clear();
+            }
+        }
+
+        if (!pointIds.isEmpty()) {
+            client.deleteAsync(collectionName, pointIds).get();
+        }
+    }
+
+    private static Points.PointStruct toPoint(LoadItem item, Embedding embedding) {
+        Points.PointStruct.Builder builder = Points.PointStruct.newBuilder()
+                .setId(id(UUID.fromString(item.id())))
+                .setVectors(vectors(embedding.vector()))
+                .putPayload(PAYLOAD_TEXT_KEY, value(item.segment().text()));
+
+        item.segment().metadata().toMap().forEach((key, v) -> builder.putPayload(key, value(String.valueOf(v))));
+
+        return builder.build();
+    }
+}
@@ -0,0 +1,47 @@
+package org.apache.camel.jbang.ai.load;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+import dev.langchain4j.data.embedding.Embedding;
+
+/**
+ * Writes the embedded items to a vector store
+ */
+public interface VectorWriter {
+
+    /**
+     * Lists the IDs of all the items currently in the store
+     * @return the item IDs
+     */
+    Set<String> existingIds() throws ExecutionException, InterruptedException;
+
+    /**
+     * Adds or replaces the items. Called concurrently by the pipeline writers.
+     * @param items the items to write
+     * @param embeddings the embeddings for the items
+     * @param onAccepted called with the items once they are durably stored
+     */
+    void upsert(List<LoadItem> items, List<Embedding> embeddings, Consumer<List<LoadItem>> onAccepted);
+
+    /**
+     * Sets a metadata entry on all the items whose value differs, without rewriting their embeddings
+     * @param key the metadata key
+     * @param value the metadata value
+     */
+    void updateMetadata(String key, String value) throws ExecutionException, InterruptedException;
+
+    /**
+     * Removes the items with the given IDs
+     */
+    void delete(Collection<String> ids) throws ExecutionException, InterruptedException;
+
+    /**
+     * Waits for all the writes to be applied
+     */
+    void flush() throws ExecutionException, InterruptedException, IOException;
+}
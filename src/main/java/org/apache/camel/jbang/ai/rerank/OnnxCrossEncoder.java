@@ -0,0 +1,124 @@
+package org.apache.camel.jbang.ai.rerank;
+
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.scoring.ScoringModel;
+
+/**
+ * A cross-encoder run locally with ONNX Runtime (i.e.: an export of {@code cross-encoder/ms-marco-MiniLM-L-6-v2}).
+ * The model reads the question and a candidate together, so it judges their relevance much better than the cosine
+ * of two independent embeddings, but it has to run once per candidate.
+ * <p>
+ * The model is expected to take the usual BERT inputs and to return one logit per pair, which is turned into a score
+ * between 0 and 1. The tokenizer is read from the {@code tokenizer.json} file next to the model.
+ */
+public final class OnnxCrossEncoder implements ScoringModel, AutoCloseable {
+    public static final String TOKENIZER_FILE = "tokenizer.json";
+
+    private static final String MAX_LENGTH = "512";
+    private static final String INPUT_IDS = "input_ids";
+    private static final String ATTENTION_MASK = "attention_mask";
+    private static final String TOKEN_TYPE_IDS = "token_type_ids";
+
+    private final OrtEnvironment environment;
+    private final OrtSession session;
+    private final HuggingFaceTokenizer tokenizer;
+    private final boolean hasTokenTypeIds;
+
+    /**
+     * Loads the model
+     * @param modelPath the ONNX model file
+     */
+    public OnnxCrossEncoder(Path modelPath) throws IOException {
+        final Path tokenizerPath = modelPath.resolveSibling(TOKENIZER_FILE);
+        this.tokenizer = HuggingFaceTokenizer.newInstance(tokenizerPath,
+                Map.of("truncation", "true", "maxLength", MAX_LENGTH, "padding", "false"));
+
+        this.environment = OrtEnvironment.getEnvironment();
+        try {
+            this.session = environment.createSession(modelPath.toString(), new OrtSession.SessionOptions());
+            this.hasTokenTypeIds = session.getInputNames().contains(TOKEN_TYPE_IDS);
+        } catch (OrtException e) {
+            tokenizer.close();
+            throw new IOException("Unable to load the cross-encoder at " + modelPath, e);
+        }
+    }
+
+    @Override
+    public Response<List<Double>> scoreAll(List<TextSegment> segments, String query) {
+        if (segments.isEmpty()) {
+            return Response.from(List.of());
+        }
+
+        final Encoding[] encodings = new Encoding[segments.size()];
+        int length = 0;
+        for (int i = 0; i < encodings.length; i++) {
+            encodings[i] = tokenizer.encode(query, segments.get(i).text());
+            length = Math.max(length, encodings[i].getIds().length);
+        }
+
+        // The pairs are padded to the longest one of the batch, with zeros: masked out and ignored by the model
+        final long[] shape = { encodings.length, length };
+        final LongBuffer ids = LongBuffer.allocate(encodings.length * length);
+        final LongBuffer mask = LongBuffer.allocate(encodings.length * length);
+        final LongBuffer typeIds = LongBuffer.allocate(encodings.length * length);
+        for (int i = 0; i < encodings.length; i++) {
+            ids.position(i * length);
+            ids.put(encodings[i].getIds());
+            mask.position(i * length);
+            mask.put(encodings[i].getAttentionMask());
+            typeIds.position(i * length);
+            typeIds.put(encodings[i].getTypeIds());
+        }
+        ids.rewind();
+        mask.rewind();
+        typeIds.rewind();
+
+        final Map<String, OnnxTensor> inputs = new HashMap<>();
+        try {
+            inputs.put(INPUT_IDS, OnnxTensor.createTensor(environment, ids, shape));
+            inputs.put(ATTENTION_MASK, OnnxTensor.createTensor(environment, mask, shape));
+            if (hasTokenTypeIds) {
+                inputs.put(TOKEN_TYPE_IDS, OnnxTensor.createTensor(environment, typeIds, shape));
+            }
+
+            try (OrtSession.Result result = session.run(inputs)) {
+                final float[][] logits = (float[][]) result.get(0).getValue();
+
+                final List<Double> scores = new ArrayList<>(logits.length);
+                for (float[] logit : logits) {
+                    scores.add(1 / (1 + Math.exp(-logit[0])));
+                }
+                return Response.from(scores);
+            }
+        } catch (OrtException e) {
+            throw new RuntimeException("Unable to run the cross-encoder", e);
+        } finally {
+            inputs.values().forEach(OnnxTensor::close);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            session.close();
+        } catch (OrtException e) {
+            System.err.printf("Unable to close the cross-encoder: %s%n", e.getMessage());
+        }
+        tokenizer.close();
+    }
+}
@@ -0,0 +1,93 @@
+package org.apache.camel.jbang.ai.rerank;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.scoring.ScoringModel;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import org.apache.camel.jbang.ai.util.ResourceRegistry;
+
+/**
+ * Reorders the retrieved candidates with a cross-encoder, so that a small number of them can go into the prompt.
+ * <p>
+ * The candidates are scored in batches, in their retrieval order, until the latency budget is spent. The first batch
+ * is always scored. The candidates left unscored are dropped: they ranked lowest in the retrieval anyway.
+ */
+public final class Reranker {
+    private static final int BATCH_SIZE = 8;
+
+    private final ScoringModel model;
+    private final int candidates;
+    private final Duration budget;
+
+    /**
+     * Constructor
+     * @param model the cross-encoder
+     * @param candidates how many candidates to retrieve for reranking
+     * @param budget how long the reranking of a question can take
+     */
+    public Reranker(ScoringModel model, int candidates, Duration budget) {
+        if (candidates <= 0) {
+            throw new IllegalArgumentException("The number of candidates to rerank must be positive: " + candidates);
+        }
+
+        this.model = model;
+        this.candidates = candidates;
+        this.budget = budget;
+    }
+
+    /**
+     * Creates a reranker with the shared cross-encoder at the given location
+     * @param modelPath the ONNX model file, or null to disable reranking
+     * @param candidates how many candidates to retrieve for reranking
+     * @param budgetMillis how many milliseconds the reranking of a question can take
+     * @return the reranker or null if disabled
+     */
+    public static Reranker of(String modelPath, int candidates, long budgetMillis) {
+        if (modelPath == null) {
+            return null;
+        }
+
+        return new Reranker(
+                ResourceRegistry.crossEncoder(Path.of(modelPath)), candidates, Duration.ofMillis(budgetMillis));
+    }
+
+    public int candidates() {
+        return candidates;
+    }
+
+    /**
+     * Reranks the candidates
+     * @param question the question
+     * @param matches the candidates, best first
+     * @return the scored candidates, best first. The scores are the ones of the cross-encoder, between 0 and 1.
+     */
+    public List<EmbeddingMatch<TextSegment>> rerank(String question, List<EmbeddingMatch<TextSegment>> matches) {
+        final long deadline = System.nanoTime() + budget.toNanos();
+        final List<EmbeddingMatch<TextSegment>> reranked = new ArrayList<>(matches.size());
+
+        for (int start = 0; start < matches.size(); start += BATCH_SIZE) {
+            if (start > 0 && System.nanoTime() > deadline) {
+                break;
+            }
+
+            final List<EmbeddingMatch<TextSegment>> batch =
+                    matches.subList(start, Math.min(start + BATCH_SIZE, matches.size()));
+            final List<TextSegment> segments = batch.stream().map(EmbeddingMatch::embedded).toList();
+
+            final List<Double> scores = model.scoreAll(segments, question).content();
+            for (int i = 0; i < batch.size(); i++) {
+                final EmbeddingMatch<TextSegment> match = batch.get(i);
+                reranked.add(new EmbeddingMatch<>(scores.get(i), match.embeddingId(), match.embedding(),
+                        match.embedded()));
+            }
+        }
+
+        reranked.sort(Comparator.comparingDouble(EmbeddingMatch<TextSegment>::score).reversed());
+        return reranked;
+    }
+}
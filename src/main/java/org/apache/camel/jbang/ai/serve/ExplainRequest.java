@@ -0,0 +1,49 @@
+package org.apache.camel.jbang.ai.serve;
+
+import org.apache.camel.jbang.ai.rerank.Reranker;
+import org.apache.camel.jbang.ai.util.ContextPacker;
+import org.apache.camel.jbang.ai.util.RetrievalPolicy;
+
+/**
+ * A request sent to the {@link ExplainServer}. The settings left null fall back to those of the server.
+ * @param what the question or the description of the code to generate (also known as 'user prompt')
+ * @param systemPrompt an optional system prompt
+ * @param modelName the model name to use
+ * @param retrieval how the options are retrieved
+ * @param contextTokenBudget the maximum number of tokens of retrieved context to add to the prompt (0 for no limit)
+ * @param catalogLookup whether to answer the plain option lookups from the catalog (whatis only)
+ */
+public record ExplainRequest(String what, String systemPrompt, String modelName, Retrieval retrieval,
+        Integer contextTokenBudget, Boolean catalogLookup) {
+
+    /**
+     * The settings of a {@link RetrievalPolicy}. The reranker is that of the server.
+     */
+    public record Retrieval(int maxResults, double minScore, double scoreWindow, double mmrLambda,
+            boolean hybridSearch) {
+
+        public Retrieval {
+            // Rejects the invalid settings as the request is read
+            new RetrievalPolicy(maxResults, minScore, scoreWindow, mmrLambda, hybridSearch);
+        }
+
+        public static Retrieval of(RetrievalPolicy policy) {
+            return new Retrieval(policy.maxResults(), policy.minScore(), policy.scoreWindow(), policy.mmrLambda(),
+                    policy.isHybrid());
+        }
+
+        public RetrievalPolicy toPolicy(Reranker reranker) {
+            return new RetrievalPolicy(maxResults, minScore, scoreWindow, mmrLambda, hybridSearch)
+                    .withReranker(reranker);
+        }
+    }
+
+    /**
+     * Creates a request carrying the settings of a command run
+     */
+    public static ExplainRequest of(String what, String systemPrompt, String modelName, RetrievalPolicy policy,
+            ContextPacker contextPacker, Boolean catalogLookup) {
+        return new ExplainRequest(what, systemPrompt, modelName, Retrieval.of(policy), contextPacker.tokenBudget(),
+                catalogLookup);
+    }
+}
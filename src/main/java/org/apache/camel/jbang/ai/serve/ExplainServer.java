@@ -0,0 +1,194 @@
+package org.apache.camel.jbang.ai.serve;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.camel.jbang.ai.WhatIsServiceClient;
+import org.apache.camel.jbang.ai.generate.GenerateCodeServiceClient;
+import org.apache.camel.jbang.ai.rerank.Reranker;
+import org.apache.camel.jbang.ai.store.VectorStoreConfig;
+import org.apache.camel.jbang.ai.util.ComponentMentions;
+import org.apache.camel.jbang.ai.util.ContextPacker;
+import org.apache.camel.jbang.ai.util.ResourceRegistry;
+import org.apache.camel.jbang.ai.util.RetrievalPolicy;
+import org.apache.camel.jbang.ai.util.cache.AnswerCache;
+
+/**
+ * A long-running server that keeps the embedding model, the vector store and the chat model warm, so that
+ * {@code whatis} and {@code generate code} only pay for the retrieval and the generation.
+ * <p>
+ * Requests are posted as a JSON {@link ExplainRequest} and the response is streamed back as plain text as the
+ * tokens are generated. The model name and the retrieval settings of a request override those of the server, while
+ * the API, the store, the reranker and the answer cache are always those of the server.
+ */
+public final class ExplainServer implements AutoCloseable {
+    public static final String WHATIS_PATH = "/whatis";
+    public static final String GENERATE_CODE_PATH = "/generate/code";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String url;
+    private final String apiKey;
+    private final String modelName;
+    private final VectorStoreConfig storeConfig;
+    private final ContextPacker contextPacker;
+    private final boolean hybridSearch;
+    private final boolean catalogLookup;
+    private final Reranker reranker;
+    private final RetrievalPolicy whatIsPolicy;
+    private final RetrievalPolicy generateCodePolicy;
+    private final AnswerCache answerCache;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Constructor
+     * @param listenHost the address to listen on
+     * @param listenPort the port to listen on
+     * @param threads how many requests can be served at once
+     * @param url the API URL
+     * @param apiKey the API key
+     * @param modelName the model name to use
+     * @param storeConfig where the embeddings are stored
+     * @param contextPacker selects the context that goes into the prompts
+     * @param hybridSearch whether to merge the vector search with a lexical one
+     * @param reranker the reranker of the retrieved options (null to disable reranking)
+     * @param catalogLookup whether to answer the plain option lookups from the catalog
+     * @param answerCache the cache of whatis answers, shared by all the requests (null to disable it)
+     */
+    public ExplainServer(
+            String listenHost, int listenPort, int threads, String url, String apiKey, String modelName,
+            VectorStoreConfig storeConfig, ContextPacker contextPacker, boolean hybridSearch, Reranker reranker,
+            boolean catalogLookup, AnswerCache answerCache) throws IOException {
+        this.url = url;
+        this.apiKey = apiKey;
+        this.modelName = modelName;
+        this.storeConfig = storeConfig;
+        this.contextPacker = contextPacker;
+        this.hybridSearch = hybridSearch;
+        this.catalogLookup = catalogLookup;
+        this.reranker = reranker;
+        this.whatIsPolicy = RetrievalPolicy.WHATIS.withHybrid(hybridSearch).withReranker(reranker);
+        this.generateCodePolicy = RetrievalPolicy.GENERATE_CODE.withHybrid(hybridSearch).withReranker(reranker);
+        this.answerCache = answerCache;
+
+        this.server = HttpServer.create(new InetSocketAddress(listenHost, listenPort), 0);
+        this.executor = Executors.newFixedThreadPool(threads);
+
+        server.setExecutor(executor);
+        server.createContext(WHATIS_PATH, exchange -> handle(exchange, this::whatIs));
+        server.createContext(GENERATE_CODE_PATH, exchange -> handle(exchange, this::generateCode));
+    }
+
+    /**
+     * Loads the shared resources, then starts accepting requests
+     */
+    public void start() {
+        ResourceRegistry.embeddingModel().warmUp();
+        storeConfig.embeddingStore();
+        // Loads the component names from the catalog
+        ComponentMentions.find("");
+        if (hybridSearch) {
+            ResourceRegistry.lexicalIndex();
+        }
+
+        server.start();
+        System.out.printf("Listening on http://%s:%d%n", server.getAddress().getHostString(),
+                server.getAddress().getPort());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        int run(ExplainRequest request, PrintStream out) throws InterruptedException;
+    }
+
+    private int whatIs(ExplainRequest request, PrintStream out) throws InterruptedException {
+        return new WhatIsServiceClient(url, apiKey, modelName(request), request.systemPrompt(), request.what(),
+                storeConfig, retrievalPolicy(request, whatIsPolicy), contextPacker(request),
+                request.catalogLookup() != null ? request.catalogLookup() : catalogLookup, null, answerCache)
+                .run(out);
+    }
+
+    private int generateCode(ExplainRequest request, PrintStream out) throws InterruptedException {
+        return new GenerateCodeServiceClient(url, apiKey, modelName(request), request.systemPrompt(), request.what(),
+                storeConfig, retrievalPolicy(request, generateCodePolicy), contextPacker(request), null).run(out);
+    }
+
+    private String modelName(ExplainRequest request) {
+        return request.modelName() != null ? request.modelName() : modelName;
+    }
+
+    private RetrievalPolicy retrievalPolicy(ExplainRequest request, RetrievalPolicy defaultPolicy) {
+        return request.retrieval() != null ? request.retrieval().toPolicy(reranker) : defaultPolicy;
+    }
+
+    private ContextPacker contextPacker(ExplainRequest request) {
+        return request.contextTokenBudget() != null ? new ContextPacker(request.contextTokenBudget()) : contextPacker;
+    }
+
+    private static void handle(HttpExchange exchange, Handler handler) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Only POST is supported");
+                return;
+            }
+
+            final ExplainRequest request;
+            try (InputStream in = exchange.getRequestBody()) {
+                request = MAPPER.readValue(in, ExplainRequest.class);
+            } catch (IOException e) {
+                sendError(exchange, 400, "Invalid request: " + e.getMessage());
+                return;
+            }
+
+            if (request.what() == null || request.what().isBlank()) {
+                sendError(exchange, 400, "Missing 'what' in the request");
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            // A zero length makes the response chunked, so the tokens reach the client as they are generated
+            exchange.sendResponseHeaders(200, 0);
+
+            try (PrintStream out = new PrintStream(exchange.getResponseBody(), false, StandardCharsets.UTF_8)) {
+                try {
+                    handler.run(request, out);
+                } catch (RuntimeException e) {
+                    // The status was already sent, so the client can only learn about the failure from the body
+                    out.printf("%nUnable to answer: %s%n", e.getMessage());
+                    throw e;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } catch (RuntimeException e) {
+            System.err.printf("Unable to serve %s: %s%n", exchange.getRequestURI(), e.getMessage());
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        final byte[] body = message.getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.apache.camel.jbang.ai.serve;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Forwards requests to a running {@link ExplainServer}
+ */
+public final class ExplainServerClient {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int BUFFER_SIZE = 1024;
+
+    private ExplainServerClient() {
+        throw new IllegalStateException("Util final class should be instantiated.");
+    }
+
+    /**
+     * Sends the request to the server and streams the response to the given output as it arrives
+     * @param serverUrl the server URL (i.e.: http://localhost:8765)
+     * @param path the endpoint to call
+     * @param request the request
+     * @param out where to print the response
+     * @return the exit code
+     */
+    public static int forward(String serverUrl, String path, ExplainRequest request, PrintStream out)
+            throws InterruptedException {
+        final HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        final HttpRequest httpRequest;
+        try {
+            httpRequest = HttpRequest.newBuilder(URI.create(serverUrl).resolve(path))
+                    .timeout(Duration.ofMinutes(2))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(MAPPER.writeValueAsString(request)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+
+        try {
+            final HttpResponse<InputStream> response = client.send(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
+
+            try (InputStream in = response.body()) {
+                if (response.statusCode() != 200) {
+                    System.err.printf("The server at %s rejected the request (%d): %s%n", serverUrl,
+                            response.statusCode(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                    return 1;
+                }
+
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            System.err.printf("Unable to reach the server at %s: %s%n", serverUrl, e.getMessage());
+            return 1;
+        }
+
+        return 0;
+    }
+}
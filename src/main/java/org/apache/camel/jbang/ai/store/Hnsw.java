@@ -0,0 +1,149 @@
+package org.apache.camel.jbang.ai.store;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * The graph traversal shared by the HNSW index builder and the local vector store. The distance is
+ * {@code 1 - cosine}, with all the vectors normalized upfront, so it is computed as a plain dot product.
+ */
+final class Hnsw {
+    static final int DEFAULT_M = 16;
+    static final int DEFAULT_EF_CONSTRUCT = 100;
+
+    /**
+     * A node along with its distance to the query
+     */
+    record Candidate(int node, float distance) {}
+
+    static final Comparator<Candidate> NEAREST_FIRST = Comparator.comparingDouble(Candidate::distance);
+    static final Comparator<Candidate> FARTHEST_FIRST = NEAREST_FIRST.reversed();
+
+    /**
+     * Gives access to the graph, whether it is being built or read from a file
+     */
+    interface Graph {
+        int size();
+
+        int neighbourCount(int node, int level);
+
+        int neighbour(int node, int level, int index);
+
+        /**
+         * The distance between the given node and the query
+         */
+        float distance(float[] query, int node);
+    }
+
+    private Hnsw() {
+    }
+
+    /**
+     * Greedily walks a layer towards the query
+     * @return the closest node found
+     */
+    static int greedySearch(Graph graph, float[] query, int entryPoint, int level) {
+        int current = entryPoint;
+        float currentDistance = graph.distance(query, current);
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            final int count = graph.neighbourCount(current, level);
+            for (int i = 0; i < count; i++) {
+                final int neighbour = graph.neighbour(current, level, i);
+                final float distance = graph.distance(query, neighbour);
+                if (distance < currentDistance) {
+                    current = neighbour;
+                    currentDistance = distance;
+                    changed = true;
+                }
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * Searches a layer for the nearest nodes to the query
+     * @return up to {@code ef} nodes, nearest first
+     */
+    static List<Candidate> searchLayer(Graph graph, float[] query, int entryPoint, int ef, int level) {
+        final BitSet visited = new BitSet(graph.size());
+        final PriorityQueue<Candidate> candidates = new PriorityQueue<>(NEAREST_FIRST);
+        final PriorityQueue<Candidate> results = new PriorityQueue<>(FARTHEST_FIRST);
+
+        final Candidate entry = new Candidate(entryPoint, graph.distance(query, entryPoint));
+        visited.set(entryPoint);
+        candidates.add(entry);
+        results.add(entry);
+
+        while (!candidates.isEmpty()) {
+            final Candidate closest = candidates.poll();
+            if (closest.distance() > results.peek().distance()) {
+                break;
+            }
+
+            final int count = graph.neighbourCount(closest.node(), level);
+            for (int i = 0; i < count; i++) {
+                final int neighbour = graph.neighbour(closest.node(), level, i);
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+
+                final float distance = graph.distance(query, neighbour);
+                if (results.size() < ef || distance < results.peek().distance()) {
+                    final Candidate candidate = new Candidate(neighbour, distance);
+                    candidates.add(candidate);
+                    results.add(candidate);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        final List<Candidate> nearest = new ArrayList<>(results);
+        nearest.sort(NEAREST_FIRST);
+        return nearest;
+    }
+
+    /*
+     * Unrolled with independent accumulators: a single running sum serializes the additions and the JIT cannot
+     * reorder floating point operations on its own
+     */
+    static float dot(float[] a, float[] b) {
+        float sum0 = 0;
+        float sum1 = 0;
+        float sum2 = 0;
+        float sum3 = 0;
+
+        final int bound = a.length & ~3;
+        int i = 0;
+        for (; i < bound; i += 4) {
+            sum0 += a[i] * b[i];
+            sum1 += a[i + 1] * b[i + 1];
+            sum2 += a[i + 2] * b[i + 2];
+            sum3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < a.length; i++) {
+            sum0 += a[i] * b[i];
+        }
+
+        return sum0 + sum1 + sum2 + sum3;
+    }
+
+    static float[] normalize(float[] vector) {
+        final float norm = (float) Math.sqrt(dot(vector, vector));
+        final float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = norm == 0 ? 0 : vector[i] / norm;
+        }
+        return normalized;
+    }
+}
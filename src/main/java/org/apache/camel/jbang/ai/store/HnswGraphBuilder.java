@@ -0,0 +1,203 @@
+package org.apache.camel.jbang.ai.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds an HNSW graph in memory. The graph is later written to disk by {@link LocalVectorStore}.
+ */
+final class HnswGraphBuilder implements Hnsw.Graph {
+    // Fixed, so that loading the same data twice builds the same graph
+    private static final long SEED = 42;
+
+    private final float[][] vectors;
+    private final int m;
+    private final int m0;
+    private final int efConstruct;
+    private final double levelMultiplier;
+    private final Random random = new Random(SEED);
+
+    private final int[] levels;
+    private final int[][][] neighbours;
+    private final float[][][] neighbourDistances;
+    private final int[][] neighbourCounts;
+
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    /**
+     * Constructor
+     * @param vectors the normalized vectors
+     * @param m the number of neighbours per node in the upper layers (twice as many in the bottom one)
+     * @param efConstruct the number of candidates to consider when linking a node
+     */
+    HnswGraphBuilder(float[][] vectors, int m, int efConstruct) {
+        if (m < 2) {
+            throw new IllegalArgumentException("The number of neighbours per node must be at least 2: " + m);
+        }
+
+        this.vectors = vectors;
+        this.m = m;
+        this.m0 = m * 2;
+        this.efConstruct = Math.max(efConstruct, m);
+        this.levelMultiplier = 1 / Math.log(m);
+
+        this.levels = new int[vectors.length];
+        this.neighbours = new int[vectors.length][][];
+        this.neighbourDistances = new float[vectors.length][][];
+        this.neighbourCounts = new int[vectors.length][];
+    }
+
+    HnswGraphBuilder build() {
+        for (int node = 0; node < vectors.length; node++) {
+            insert(node);
+        }
+        return this;
+    }
+
+    int entryPoint() {
+        return entryPoint;
+    }
+
+    int maxLevel() {
+        return maxLevel;
+    }
+
+    int level(int node) {
+        return levels[node];
+    }
+
+    @Override
+    public int size() {
+        return vectors.length;
+    }
+
+    @Override
+    public int neighbourCount(int node, int level) {
+        return neighbourCounts[node][level];
+    }
+
+    @Override
+    public int neighbour(int node, int level, int index) {
+        return neighbours[node][level][index];
+    }
+
+    @Override
+    public float distance(float[] query, int node) {
+        return 1 - Hnsw.dot(query, vectors[node]);
+    }
+
+    private float distance(int a, int b) {
+        return 1 - Hnsw.dot(vectors[a], vectors[b]);
+    }
+
+    private int maxNeighbours(int level) {
+        return level == 0 ? m0 : m;
+    }
+
+    private void insert(int node) {
+        final int level = (int) Math.floor(-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        levels[node] = level;
+        neighbours[node] = new int[level + 1][];
+        neighbourDistances[node] = new float[level + 1][];
+        neighbourCounts[node] = new int[level + 1];
+        for (int l = 0; l <= level; l++) {
+            neighbours[node][l] = new int[maxNeighbours(l)];
+            neighbourDistances[node][l] = new float[maxNeighbours(l)];
+        }
+
+        if (entryPoint == -1) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        final float[] query = vectors[node];
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = Hnsw.greedySearch(this, query, current, l);
+        }
+
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            final List<Hnsw.Candidate> candidates = Hnsw.searchLayer(this, query, current, efConstruct, l);
+            final List<Hnsw.Candidate> selected = selectNeighbours(candidates, maxNeighbours(l));
+
+            for (Hnsw.Candidate neighbour : selected) {
+                link(node, neighbour.node(), neighbour.distance(), l);
+                link(neighbour.node(), node, neighbour.distance(), l);
+            }
+
+            current = candidates.get(0).node();
+        }
+
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    /*
+     * When the node already has as many links as allowed, its links are selected again among the existing ones and
+     * the new one. The distances of the existing links are kept, so only the selection heuristic computes new ones.
+     */
+    private void link(int from, int to, float distance, int level) {
+        final int count = neighbourCounts[from][level];
+        if (count < maxNeighbours(level)) {
+            neighbours[from][level][count] = to;
+            neighbourDistances[from][level][count] = distance;
+            neighbourCounts[from][level] = count + 1;
+            return;
+        }
+
+        final List<Hnsw.Candidate> candidates = new ArrayList<>(count + 1);
+        for (int i = 0; i < count; i++) {
+            candidates.add(new Hnsw.Candidate(neighbours[from][level][i], neighbourDistances[from][level][i]));
+        }
+        candidates.add(new Hnsw.Candidate(to, distance));
+        candidates.sort(Hnsw.NEAREST_FIRST);
+
+        final List<Hnsw.Candidate> selected = selectNeighbours(candidates, maxNeighbours(level));
+        for (int i = 0; i < selected.size(); i++) {
+            neighbours[from][level][i] = selected.get(i).node();
+            neighbourDistances[from][level][i] = selected.get(i).distance();
+        }
+        neighbourCounts[from][level] = selected.size();
+    }
+
+    /*
+     * The neighbour selection heuristic from the HNSW paper: a candidate is skipped if it is closer to an already
+     * selected neighbour than to the node, so that the links spread in different directions. The remaining slots are
+     * then filled with the skipped candidates, nearest first.
+     */
+    private List<Hnsw.Candidate> selectNeighbours(List<Hnsw.Candidate> candidates, int max) {
+        final List<Hnsw.Candidate> selected = new ArrayList<>(max);
+        final List<Hnsw.Candidate> skipped = new ArrayList<>();
+
+        for (Hnsw.Candidate candidate : candidates) {
+            if (selected.size() == max) {
+                break;
+            }
+
+            boolean diverse = true;
+            for (Hnsw.Candidate other : selected) {
+                if (distance(candidate.node(), other.node()) < candidate.distance()) {
+                    diverse = false;
+                    break;
+                }
+            }
+
+            if (diverse) {
+                selected.add(candidate);
+            } else {
+                skipped.add(candidate);
+            }
+        }
+
+        for (int i = 0; i < skipped.size() && selected.size() < max; i++) {
+            selected.add(skipped.get(i));
+        }
+
+        return selected;
+    }
+}
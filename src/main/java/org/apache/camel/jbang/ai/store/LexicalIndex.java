@@ -0,0 +1,172 @@
+package org.apache.camel.jbang.ai.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+/**
+ * An in-memory BM25 inverted index over the catalog text. It complements the vector search on questions naming
+ * exact option names (i.e.: {@code brokers} or {@code completionTimeout}), which the embeddings only capture loosely.
+ * <p>
+ * Option names are indexed both as a whole and split on their camel case, so that {@code groupId} matches the
+ * questions asking for {@code groupId} as well as the ones asking about a group ID.
+ */
+public final class LexicalIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{Alnum}]+");
+    private static final Pattern CAMEL_CASE = Pattern.compile("(?<=\\p{Ll})(?=\\p{Lu})");
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "and", "are", "be", "by", "can", "do", "does",
+            "for", "how", "i", "in", "is", "it", "of", "on", "or", "the", "to", "what", "when", "which", "with");
+
+    /**
+     * The postings of a term: the documents it appears in and how many times
+     */
+    private record Postings(int[] documents, int[] frequencies) {}
+
+    private final List<String> ids;
+    private final List<TextSegment> segments;
+    private final int[] lengths;
+    private final double averageLength;
+    private final Map<String, Postings> postings;
+
+    /**
+     * Builds the index
+     * @param ids the document IDs (the same as the point IDs in the vector store)
+     * @param segments the documents
+     */
+    public LexicalIndex(List<String> ids, List<TextSegment> segments) {
+        this.ids = List.copyOf(ids);
+        this.segments = List.copyOf(segments);
+        this.lengths = new int[segments.size()];
+
+        final Map<String, List<int[]>> builder = new HashMap<>();
+        long totalLength = 0;
+        for (int document = 0; document < segments.size(); document++) {
+            final List<String> terms = tokenize(segments.get(document).text());
+            lengths[document] = terms.size();
+            totalLength += terms.size();
+
+            final Map<String, Integer> frequencies = new HashMap<>();
+            terms.forEach(term -> frequencies.merge(term, 1, Integer::sum));
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                builder.computeIfAbsent(entry.getKey(), k -> new ArrayList<>())
+                        .add(new int[] { document, entry.getValue() });
+            }
+        }
+        this.averageLength = segments.isEmpty() ? 0 : (double) totalLength / segments.size();
+
+        this.postings = new HashMap<>(builder.size());
+        for (Map.Entry<String, List<int[]>> entry : builder.entrySet()) {
+            final List<int[]> list = entry.getValue();
+            final int[] documents = new int[list.size()];
+            final int[] frequencies = new int[list.size()];
+            for (int i = 0; i < list.size(); i++) {
+                documents[i] = list.get(i)[0];
+                frequencies[i] = list.get(i)[1];
+            }
+            postings.put(entry.getKey(), new Postings(documents, frequencies));
+        }
+    }
+
+    public int size() {
+        return segments.size();
+    }
+
+    /**
+     * Searches the index
+     * @param query the question
+     * @param maxResults the maximum number of documents to return
+     * @param filter restricts the search to the documents with matching metadata (null to search everything)
+     * @return the matching documents, best first. The scores are BM25 scores, not relevance scores, and the matches
+     *         have no embedding.
+     */
+    public List<EmbeddingMatch<TextSegment>> search(String query, int maxResults, Filter filter) {
+        final double[] scores = new double[segments.size()];
+        final int count = segments.size();
+
+        // Repeated terms in the question do not weigh more
+        for (String term : new LinkedHashSet<>(tokenize(query))) {
+            final Postings termPostings = postings.get(term);
+            if (termPostings == null) {
+                continue;
+            }
+
+            final int df = termPostings.documents().length;
+            final double idf = Math.log(1 + (count - df + 0.5) / (df + 0.5));
+            for (int i = 0; i < df; i++) {
+                final int document = termPostings.documents()[i];
+                final int tf = termPostings.frequencies()[i];
+                final double norm = K1 * (1 - B + B * lengths[document] / averageLength);
+                scores[document] += idf * tf * (K1 + 1) / (tf + norm);
+            }
+        }
+
+        // Keeps the best documents, with the worst of them on top
+        final PriorityQueue<Integer> best = new PriorityQueue<>(maxResults + 1,
+                (a, b) -> Double.compare(scores[a], scores[b]));
+        for (int document = 0; document < count; document++) {
+            if (scores[document] <= 0) {
+                continue;
+            }
+            if (best.size() == maxResults && scores[document] <= scores[best.peek()]) {
+                continue;
+            }
+            if (filter != null && !filter.test(segments.get(document).metadata())) {
+                continue;
+            }
+
+            best.add(document);
+            if (best.size() > maxResults) {
+                best.poll();
+            }
+        }
+
+        final List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            final int document = best.poll();
+            matches.add(new EmbeddingMatch<>(scores[document], ids.get(document), null, segments.get(document)));
+        }
+        Collections.reverse(matches);
+        return matches;
+    }
+
+    static List<String> tokenize(String text) {
+        final List<String> terms = new ArrayList<>();
+
+        for (String word : WORD_SEPARATOR.split(text)) {
+            if (word.isEmpty()) {
+                continue;
+            }
+
+            final String term = word.toLowerCase(Locale.ROOT);
+            if (!STOP_WORDS.contains(term)) {
+                terms.add(term);
+            }
+
+            final String[] parts = CAMEL_CASE.split(word);
+            if (parts.length > 1) {
+                for (String part : parts) {
+                    final String partTerm = part.toLowerCase(Locale.ROOT);
+                    if (!STOP_WORDS.contains(partTerm)) {
+                        terms.add(partTerm);
+                    }
+                }
+            }
+        }
+
+        return terms;
+    }
+}
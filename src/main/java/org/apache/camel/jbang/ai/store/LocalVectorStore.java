@@ -0,0 +1,503 @@
+package org.apache.camel.jbang.ai.store;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Stream;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+/**
+ * A read-only embedding store backed by local files, so that questions can be answered without a running Qdrant.
+ * <p>
+ * The store is a directory with three memory-mapped files: the normalized vectors, an HNSW graph over them and the
+ * text segments. Opening it only maps the files, so nothing is read until it is searched and the data stays off the
+ * Java heap. The store is built by the {@code load} command through {@link #write}.
+ */
+public final class LocalVectorStore implements EmbeddingStore<TextSegment> {
+    private static final Path STORE_DIR = Path.of(System.getProperty("user.home"), ".camel", "explain", "store");
+
+    private static final String VECTORS_FILE = "vectors.bin";
+    private static final String GRAPH_FILE = "graph.bin";
+    private static final String SEGMENTS_FILE = "segments.bin";
+
+    private static final int MAGIC = 0x43565354;
+    private static final int VERSION = 1;
+    private static final int VECTORS_HEADER_INTS = 4;
+    private static final int GRAPH_HEADER_INTS = 5;
+    private static final int SEGMENTS_HEADER_INTS = 3;
+
+    private static final int DEFAULT_EF_SEARCH = 64;
+    // Filtered searches look at more candidates, since some of them will be discarded
+    private static final int FILTERED_EF_FACTOR = 8;
+
+    private final int size;
+    private final int dimension;
+    private final FloatBuffer vectors;
+    private final IntBuffer graph;
+    private final int maxLevel;
+    private final int entryPoint;
+    private final int offsetsStart;
+    private final int neighboursStart;
+    private final ByteBuffer segments;
+    private final LongView segmentOffsets;
+    private final AtomicReferenceArray<Entry> entries;
+
+    private record Entry(String id, TextSegment segment) {}
+
+    /*
+     * The segment offsets are longs in the segments file
+     */
+    private record LongView(ByteBuffer buffer, int start) {
+        long get(int index) {
+            return buffer.getLong(start + index * Long.BYTES);
+        }
+    }
+
+    private LocalVectorStore(MappedByteBuffer vectorFile, MappedByteBuffer graphFile, MappedByteBuffer segmentFile) {
+        final IntBuffer vectorHeader = vectorFile.asIntBuffer();
+        checkHeader(vectorHeader, VECTORS_FILE);
+        this.size = vectorHeader.get(2);
+        this.dimension = vectorHeader.get(3);
+        this.vectors = vectorFile.position(VECTORS_HEADER_INTS * Integer.BYTES).slice().asFloatBuffer();
+
+        this.graph = graphFile.asIntBuffer();
+        checkHeader(graph, GRAPH_FILE);
+        this.maxLevel = graph.get(3);
+        this.entryPoint = graph.get(4);
+        // The levels of the nodes come right after the header, but the search does not need them
+        this.offsetsStart = GRAPH_HEADER_INTS + size;
+        this.neighboursStart = offsetsStart + size;
+
+        checkHeader(segmentFile.asIntBuffer(), SEGMENTS_FILE);
+        this.segments = segmentFile;
+        this.segmentOffsets = new LongView(segmentFile, SEGMENTS_HEADER_INTS * Integer.BYTES);
+        this.entries = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * The default store location for a given collection
+     */
+    public static Path defaultPath(String collectionName) {
+        return STORE_DIR.resolve(collectionName);
+    }
+
+    public static boolean exists(Path path) {
+        return Files.exists(path.resolve(VECTORS_FILE))
+                && Files.exists(path.resolve(GRAPH_FILE))
+                && Files.exists(path.resolve(SEGMENTS_FILE));
+    }
+
+    /**
+     * Opens an existing store
+     * @param path the store directory
+     * @return the store
+     */
+    public static LocalVectorStore open(Path path) throws IOException {
+        if (!exists(path)) {
+            throw new IllegalArgumentException("There is no local vector store at " + path + ": run the load command first");
+        }
+
+        return new LocalVectorStore(map(path.resolve(VECTORS_FILE)), map(path.resolve(GRAPH_FILE)),
+                map(path.resolve(SEGMENTS_FILE)));
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalStateException("The local vector store file is too large: " + file);
+            }
+
+            // The mapping remains valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static void checkHeader(IntBuffer header, String file) {
+        if (header.get(0) != MAGIC || header.get(1) != VERSION) {
+            throw new IllegalStateException("Unsupported local vector store file: " + file);
+        }
+    }
+
+    /**
+     * Builds a store, replacing any existing one at the same location
+     * @param path the store directory
+     * @param ids the embedding IDs
+     * @param segments the text segments
+     * @param vectors the embedding vectors
+     * @param m the number of neighbours per node in the HNSW graph (0 for the default)
+     * @param efConstruct the number of neighbours considered when building the HNSW graph (0 for the default)
+     */
+    public static void write(Path path, List<String> ids, List<TextSegment> segments, List<float[]> vectors, int m,
+            int efConstruct) throws IOException {
+        final int size = vectors.size();
+        final int dimension = size == 0 ? 0 : vectors.get(0).length;
+
+        final float[][] normalized = new float[size][];
+        for (int i = 0; i < size; i++) {
+            normalized[i] = Hnsw.normalize(vectors.get(i));
+        }
+
+        final HnswGraphBuilder builder = new HnswGraphBuilder(normalized, m > 0 ? m : Hnsw.DEFAULT_M,
+                efConstruct > 0 ? efConstruct : Hnsw.DEFAULT_EF_CONSTRUCT).build();
+
+        // Written next to the store and then swapped in, so that an interrupted write never leaves a broken store
+        final Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        deleteRecursively(tmp);
+        Files.createDirectories(tmp);
+
+        writeVectors(tmp.resolve(VECTORS_FILE), normalized, dimension);
+        writeGraph(tmp.resolve(GRAPH_FILE), builder);
+        writeSegments(tmp.resolve(SEGMENTS_FILE), ids, segments);
+
+        final Path old = path.resolveSibling(path.getFileName() + ".old");
+        deleteRecursively(old);
+        if (Files.exists(path)) {
+            Files.move(path, old, StandardCopyOption.ATOMIC_MOVE);
+        }
+        Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+        deleteRecursively(old);
+    }
+
+    private static void writeVectors(Path file, float[][] vectors, int dimension) throws IOException {
+        try (DataOutputStream out = newOutput(file)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(vectors.length);
+            out.writeInt(dimension);
+
+            for (float[] vector : vectors) {
+                for (float v : vector) {
+                    out.writeFloat(v);
+                }
+            }
+        }
+    }
+
+    /*
+     * Layout: header, the level of each node, the offset of each node in the neighbour area and then the neighbour
+     * area, with the neighbour count and IDs of each node for every level, from the bottom one up.
+     */
+    private static void writeGraph(Path file, HnswGraphBuilder graph) throws IOException {
+        try (DataOutputStream out = newOutput(file)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(graph.size());
+            out.writeInt(graph.maxLevel());
+            out.writeInt(graph.entryPoint());
+
+            for (int node = 0; node < graph.size(); node++) {
+                out.writeInt(graph.level(node));
+            }
+
+            int offset = 0;
+            for (int node = 0; node < graph.size(); node++) {
+                out.writeInt(offset);
+                for (int level = 0; level <= graph.level(node); level++) {
+                    offset += 1 + graph.neighbourCount(node, level);
+                }
+            }
+
+            for (int node = 0; node < graph.size(); node++) {
+                for (int level = 0; level <= graph.level(node); level++) {
+                    final int count = graph.neighbourCount(node, level);
+                    out.writeInt(count);
+                    for (int i = 0; i < count; i++) {
+                        out.writeInt(graph.neighbour(node, level, i));
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * Layout: header, the offset of each record and then the records: the ID, the text and the metadata
+     */
+    private static void writeSegments(Path file, List<String> ids, List<TextSegment> segments) throws IOException {
+        final List<byte[]> records = new ArrayList<>(segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            records.add(encode(ids.get(i), segments.get(i)));
+        }
+
+        try (DataOutputStream out = newOutput(file)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(records.size());
+
+            long offset = SEGMENTS_HEADER_INTS * Integer.BYTES + (long) records.size() * Long.BYTES;
+            for (byte[] record : records) {
+                out.writeLong(offset);
+                offset += record.length;
+            }
+
+            for (byte[] record : records) {
+                out.write(record);
+            }
+        }
+    }
+
+    private static byte[] encode(String id, TextSegment segment) {
+        final Map<String, Object> metadata = segment.metadata().toMap();
+
+        // The lengths of the ID and the text, and the number of metadata entries
+        int length = 3 * Integer.BYTES;
+        final byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        final byte[] textBytes = segment.text().getBytes(StandardCharsets.UTF_8);
+        length += idBytes.length + textBytes.length;
+
+        final List<byte[]> metadataBytes = new ArrayList<>(metadata.size() * 2);
+        for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+            metadataBytes.add(entry.getKey().getBytes(StandardCharsets.UTF_8));
+            metadataBytes.add(String.valueOf(entry.getValue()).getBytes(StandardCharsets.UTF_8));
+        }
+        for (byte[] bytes : metadataBytes) {
+            length += Integer.BYTES + bytes.length;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        putBytes(buffer, idBytes);
+        putBytes(buffer, textBytes);
+        buffer.putInt(metadata.size());
+        metadataBytes.forEach(bytes -> putBytes(buffer, bytes));
+
+        return buffer.array();
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static DataOutputStream newOutput(Path file) throws IOException {
+        final OutputStream out = Files.newOutputStream(file);
+        return new DataOutputStream(new BufferedOutputStream(out));
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String id(int index) {
+        return entry(index).id();
+    }
+
+    public TextSegment segment(int index) {
+        return entry(index).segment();
+    }
+
+    /**
+     * The normalized vector of the given entry
+     */
+    public float[] vector(int index) {
+        final float[] vector = new float[dimension];
+        vectors.get(index * dimension, vector);
+        return vector;
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        if (size == 0) {
+            return new EmbeddingSearchResult<>(List.of());
+        }
+
+        final float[] query = Hnsw.normalize(request.queryEmbedding().vector());
+        final Filter filter = request.filter();
+        final int maxResults = request.maxResults();
+
+        List<Hnsw.Candidate> candidates = searchGraph(query,
+                Math.max(DEFAULT_EF_SEARCH, filter == null ? maxResults : maxResults * FILTERED_EF_FACTOR));
+        List<EmbeddingMatch<TextSegment>> matches = toMatches(candidates, filter, maxResults, request.minScore());
+
+        // A selective filter may discard most of the graph neighbourhood: scan the whole store in that case
+        if (filter != null && matches.size() < maxResults) {
+            matches = toMatches(scan(query), filter, maxResults, request.minScore());
+        }
+
+        return new EmbeddingSearchResult<>(matches);
+    }
+
+    private List<Hnsw.Candidate> searchGraph(float[] query, int ef) {
+        final Hnsw.Graph view = new GraphView();
+
+        int current = entryPoint;
+        for (int level = maxLevel; level > 0; level--) {
+            current = Hnsw.greedySearch(view, query, current, level);
+        }
+
+        return Hnsw.searchLayer(view, query, current, ef, 0);
+    }
+
+    private List<Hnsw.Candidate> scan(float[] query) {
+        final float[] scratch = new float[dimension];
+        final List<Hnsw.Candidate> candidates = new ArrayList<>(size);
+        for (int node = 0; node < size; node++) {
+            candidates.add(new Hnsw.Candidate(node, distance(query, node, scratch)));
+        }
+        candidates.sort(Hnsw.NEAREST_FIRST);
+        return candidates;
+    }
+
+    private List<EmbeddingMatch<TextSegment>> toMatches(
+            List<Hnsw.Candidate> candidates, Filter filter, int maxResults, double minScore) {
+        final List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(maxResults);
+
+        for (Hnsw.Candidate candidate : candidates) {
+            if (matches.size() == maxResults) {
+                break;
+            }
+
+            final double score = RelevanceScore.fromCosineSimilarity(1 - candidate.distance());
+            if (score < minScore) {
+                // Candidates are sorted, so no other one can make it
+                break;
+            }
+
+            final Entry entry = entry(candidate.node());
+            if (filter != null && !filter.test(entry.segment().metadata())) {
+                continue;
+            }
+
+            matches.add(new EmbeddingMatch<>(score, entry.id(), Embedding.from(vector(candidate.node())),
+                    entry.segment()));
+        }
+
+        return matches;
+    }
+
+    private float distance(float[] query, int node, float[] scratch) {
+        // A bulk copy out of the mapped file is much cheaper than reading the floats one by one
+        vectors.get(node * dimension, scratch);
+        return 1 - Hnsw.dot(query, scratch);
+    }
+
+    private Entry entry(int index) {
+        Entry entry = entries.get(index);
+        if (entry == null) {
+            entry = decode(index);
+            entries.set(index, entry);
+        }
+        return entry;
+    }
+
+    private Entry decode(int index) {
+        final ByteBuffer record = segments.duplicate().position((int) segmentOffsets.get(index));
+
+        final String id = getString(record);
+        final String text = getString(record);
+        final int metadataSize = record.getInt();
+
+        final Map<String, String> metadata = new HashMap<>(metadataSize * 2);
+        for (int i = 0; i < metadataSize; i++) {
+            metadata.put(getString(record), getString(record));
+        }
+
+        return new Entry(id, TextSegment.from(text, new Metadata(metadata)));
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /*
+     * The HNSW graph as read from the graph file. Not thread-safe: each search uses its own view.
+     */
+    private final class GraphView implements Hnsw.Graph {
+        private final float[] scratch = new float[dimension];
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int neighbourCount(int node, int level) {
+            return graph.get(levelOffset(node, level));
+        }
+
+        @Override
+        public int neighbour(int node, int level, int index) {
+            return graph.get(levelOffset(node, level) + 1 + index);
+        }
+
+        @Override
+        public float distance(float[] query, int node) {
+            return LocalVectorStore.this.distance(query, node, scratch);
+        }
+
+        private int levelOffset(int node, int level) {
+            int offset = neighboursStart + graph.get(offsetsStart + node);
+            for (int l = 0; l < level; l++) {
+                offset += 1 + graph.get(offset);
+            }
+            return offset;
+        }
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        throw readOnly();
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        throw readOnly();
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        throw readOnly();
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        throw readOnly();
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> embedded) {
+        throw readOnly();
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("The local vector store is read-only: use the load command to update it");
+    }
+}
@@ -0,0 +1,122 @@
+package org.apache.camel.jbang.ai.store;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.filter.comparison.IsEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsIn;
+import dev.langchain4j.store.embedding.filter.logical.And;
+import dev.langchain4j.store.embedding.qdrant.QdrantEmbeddingStore;
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.WithPayloadSelectorFactory;
+import io.qdrant.client.WithVectorsSelectorFactory;
+import io.qdrant.client.grpc.JsonWithInt;
+import io.qdrant.client.grpc.Points;
+
+import static io.qdrant.client.ConditionFactory.matchKeyword;
+import static io.qdrant.client.ConditionFactory.matchKeywords;
+
+/**
+ * A Qdrant embedding store whose searches honour metadata filters. langchain4j's {@link QdrantEmbeddingStore}
+ * ignores them, so this one runs the search itself and lets Qdrant apply the filter on the payload indexes.
+ * <p>
+ * Only the filters used on the catalog payload are supported: equality and membership on string fields, combined
+ * with {@code and}.
+ */
+public final class QdrantVectorStore extends QdrantEmbeddingStore {
+    private final QdrantClient client;
+    private final String collectionName;
+    private final String payloadTextKey;
+
+    public QdrantVectorStore(QdrantClient client, String collectionName, String payloadTextKey) {
+        super(client, collectionName, payloadTextKey);
+
+        this.client = client;
+        this.collectionName = collectionName;
+        this.payloadTextKey = payloadTextKey;
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        if (request.filter() == null) {
+            return super.search(request);
+        }
+
+        final Points.SearchPoints search = Points.SearchPoints.newBuilder()
+                .setCollectionName(collectionName)
+                .addAllVector(request.queryEmbedding().vectorAsList())
+                .setFilter(Points.Filter.newBuilder().addAllMust(toConditions(request.filter())))
+                .setLimit(request.maxResults())
+                // Qdrant scores with the cosine similarity, while the request has a relevance score
+                .setScoreThreshold((float) (2 * request.minScore() - 1))
+                .setWithPayload(WithPayloadSelectorFactory.enable(true))
+                .setWithVectors(WithVectorsSelectorFactory.enable(true))
+                .build();
+
+        final List<Points.ScoredPoint> points;
+        try {
+            points = client.searchAsync(search).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while searching Qdrant", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to search Qdrant", e);
+        }
+
+        final List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(points.size());
+        for (Points.ScoredPoint point : points) {
+            matches.add(toMatch(point));
+        }
+        return new EmbeddingSearchResult<>(matches);
+    }
+
+    private static List<Points.Condition> toConditions(Filter filter) {
+        final List<Points.Condition> conditions = new ArrayList<>();
+
+        if (filter instanceof And and) {
+            conditions.addAll(toConditions(and.left()));
+            conditions.addAll(toConditions(and.right()));
+        } else if (filter instanceof IsEqualTo isEqualTo && isEqualTo.comparisonValue() instanceof String value) {
+            conditions.add(matchKeyword(isEqualTo.key(), value));
+        } else if (filter instanceof IsIn isIn) {
+            final List<String> values = new ArrayList<>(isIn.comparisonValues().size());
+            for (Object value : isIn.comparisonValues()) {
+                values.add(String.valueOf(value));
+            }
+            conditions.add(matchKeywords(isIn.key(), values));
+        } else {
+            throw new UnsupportedOperationException("Unsupported filter: " + filter);
+        }
+
+        return conditions;
+    }
+
+    private EmbeddingMatch<TextSegment> toMatch(Points.ScoredPoint point) {
+        final Map<String, String> metadata = new HashMap<>();
+        String text = null;
+        for (Map.Entry<String, JsonWithInt.Value> entry : point.getPayloadMap().entrySet()) {
+            if (payloadTextKey.equals(entry.getKey())) {
+                text = entry.getValue().getStringValue();
+            } else if (entry.getValue().hasStringValue()) {
+                metadata.put(entry.getKey(), entry.getValue().getStringValue());
+            }
+        }
+
+        final Embedding embedding = Embedding.from(point.getVectors().getVector().getDataList());
+        final TextSegment segment = text != null ? TextSegment.from(text, new Metadata(metadata)) : null;
+
+        return new EmbeddingMatch<>(RelevanceScore.fromCosineSimilarity(point.getScore()), point.getId().getUuid(),
+                embedding, segment);
+    }
+}
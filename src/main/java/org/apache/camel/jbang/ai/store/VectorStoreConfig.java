@@ -0,0 +1,99 @@
+package org.apache.camel.jbang.ai.store;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import org.apache.camel.jbang.ai.util.ResourceRegistry;
+import org.apache.camel.jbang.ai.util.cache.AnswerCache;
+
+/**
+ * Where the embeddings are stored: either a Qdrant collection or a {@link LocalVectorStore}
+ */
+public final class VectorStoreConfig {
+    public static final String QDRANT = "qdrant";
+    public static final String LOCAL = "local";
+
+    private static final Path ANSWERS_DIR = Path.of(System.getProperty("user.home"), ".camel", "explain");
+
+    private final String store;
+    private final String host;
+    private final int port;
+    private final String collectionName;
+    private final Path storePath;
+
+    /**
+     * Constructor
+     * @param store the store type: qdrant or local
+     * @param host the Qdrant host
+     * @param port the Qdrant port
+     * @param collectionName the Qdrant collection name. Also names the default local store.
+     * @param storePath the local store directory, or null for the default one
+     */
+    public VectorStoreConfig(String store, String host, int port, String collectionName, String storePath) {
+        if (!QDRANT.equals(store) && !LOCAL.equals(store)) {
+            throw new IllegalArgumentException("Invalid store: " + store);
+        }
+
+        this.store = store;
+        this.host = host;
+        this.port = port;
+        this.collectionName = collectionName;
+        this.storePath = storePath != null ? Path.of(storePath) : LocalVectorStore.defaultPath(collectionName);
+    }
+
+    public boolean isLocal() {
+        return LOCAL.equals(store);
+    }
+
+    public String host() {
+        return host;
+    }
+
+    public int port() {
+        return port;
+    }
+
+    public String collectionName() {
+        return collectionName;
+    }
+
+    public Path storePath() {
+        return storePath;
+    }
+
+    /**
+     * The answer cache file for this store. It is kept outside the local store directory, which is replaced on load.
+     */
+    public Path answerCachePath() {
+        if (isLocal()) {
+            return storePath.resolveSibling(storePath.getFileName() + ".answers.jsonl");
+        }
+
+        return ANSWERS_DIR.resolve(String.format("answers-%s-%s-%d.jsonl", collectionName, host, port));
+    }
+
+    /**
+     * Opens the answer cache for this store
+     * @param maxEntries the maximum number of answers to keep (0 to disable the cache)
+     * @param ttl how long an answer can be reused
+     * @param threshold the minimum cosine similarity between two questions for them to share an answer
+     * @return the cache or null if disabled
+     */
+    public AnswerCache answerCache(int maxEntries, Duration ttl, double threshold) {
+        return maxEntries > 0 ? new AnswerCache(answerCachePath(), maxEntries, ttl, threshold) : null;
+    }
+
+    /**
+     * The shared embedding store for this configuration
+     */
+    public EmbeddingStore<TextSegment> embeddingStore() {
+        return isLocal() ? ResourceRegistry.localStore(storePath) : ResourceRegistry.embeddingStore(host, port, collectionName);
+    }
+
+    @Override
+    public String toString() {
+        return isLocal() ? storePath.toString() : collectionName;
+    }
+}
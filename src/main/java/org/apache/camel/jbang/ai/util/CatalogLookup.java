@@ -0,0 +1,148 @@
+package org.apache.camel.jbang.ai.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.apache.camel.catalog.CamelCatalog;
+import org.apache.camel.catalog.DefaultCamelCatalog;
+import org.apache.camel.tooling.model.BaseOptionModel;
+import org.apache.camel.tooling.model.ComponentModel;
+
+/**
+ * Answers the questions about a single option of a component straight from the catalog, without retrieval nor LLM
+ * (i.e.: "what is the brokers option of the kafka component?").
+ * <p>
+ * A question is only answered here when it asks for a definition, names exactly one component and exactly one of its
+ * options, and has none of the words of an open-ended question. Everything else goes through retrieval and the LLM.
+ */
+public final class CatalogLookup {
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{Alnum}-]+");
+    private static final Pattern DEFINITION = Pattern.compile(
+            "^\\s*(what\\s+is|what's|what\\s+are|what\\s+does|describe|explain)\\b.*", Pattern.CASE_INSENSITIVE);
+    private static final Set<String> OPEN_ENDED_WORDS = Set.of("how", "why", "when", "should", "example", "examples",
+            "difference", "differences", "compare", "versus", "vs", "between", "route", "routes", "best", "and");
+    // Longer questions usually ask for more than a definition
+    private static final int MAX_WORDS = 16;
+
+    /**
+     * An option of a component along with its kind (i.e.: component or endpoint)
+     */
+    private record KindedOption(String kind, BaseOptionModel option) {}
+
+    private static final class CatalogHolder {
+        private static final CamelCatalog CATALOG = new DefaultCamelCatalog(true);
+    }
+
+    // Options by component, then by lower case name. Filled as the components are asked about.
+    private static final Map<String, Map<String, List<KindedOption>>> OPTIONS = new ConcurrentHashMap<>();
+
+    private CatalogLookup() {
+        throw new IllegalStateException("Util final class should be instantiated.");
+    }
+
+    /**
+     * Answers a question from the catalog
+     * @param question the question
+     * @return the answer or null if the question is not a plain option lookup
+     */
+    public static String answer(String question) {
+        if (!DEFINITION.matcher(question).matches()) {
+            return null;
+        }
+
+        final String[] words = WORD_SEPARATOR.split(question.trim());
+        if (words.length > MAX_WORDS) {
+            return null;
+        }
+        for (String word : words) {
+            if (OPEN_ENDED_WORDS.contains(word.toLowerCase(Locale.ROOT))) {
+                return null;
+            }
+        }
+
+        final Set<String> components = ComponentMentions.find(question);
+        if (components.size() != 1) {
+            return null;
+        }
+
+        final String componentName = components.iterator().next();
+        final Map<String, List<KindedOption>> options = OPTIONS.computeIfAbsent(componentName, CatalogLookup::index);
+
+        final Set<String> optionNames = new LinkedHashSet<>();
+        for (String word : words) {
+            final String name = word.toLowerCase(Locale.ROOT);
+            // The component name may also be the name of one of its options
+            if (options.containsKey(name) && !name.equals(componentName)) {
+                optionNames.add(name);
+            }
+        }
+        if (optionNames.size() != 1) {
+            return null;
+        }
+
+        return format(componentName, options.get(optionNames.iterator().next()));
+    }
+
+    private static Map<String, List<KindedOption>> index(String componentName) {
+        final ComponentModel componentModel = CatalogHolder.CATALOG.componentModel(componentName);
+        final Map<String, List<KindedOption>> options = new HashMap<>();
+        if (componentModel == null) {
+            return options;
+        }
+
+        for (ComponentModel.ComponentOptionModel option : componentModel.getComponentOptions()) {
+            options.computeIfAbsent(option.getName().toLowerCase(Locale.ROOT), k -> new ArrayList<>())
+                    .add(new KindedOption("component", option));
+        }
+        for (ComponentModel.EndpointOptionModel option : componentModel.getEndpointParameterOptions()) {
+            options.computeIfAbsent(option.getName().toLowerCase(Locale.ROOT), k -> new ArrayList<>())
+                    .add(new KindedOption("endpoint", option));
+        }
+
+        return options;
+    }
+
+    private static String format(String componentName, List<KindedOption> options) {
+        // Options that are both component and endpoint options usually have the same definition for both
+        final Map<String, List<String>> kindsByDefinition = new LinkedHashMap<>();
+        for (KindedOption kindedOption : options) {
+            kindsByDefinition.computeIfAbsent(definition(kindedOption.option()), k -> new ArrayList<>())
+                    .add(kindedOption.kind());
+        }
+
+        final StringBuilder answer = new StringBuilder();
+        for (Map.Entry<String, List<String>> entry : kindsByDefinition.entrySet()) {
+            if (!answer.isEmpty()) {
+                answer.append(System.lineSeparator());
+            }
+
+            answer.append(String.format("The %s option of the %s %s: %s", options.get(0).option().getName(),
+                    componentName, String.join(" and ", entry.getValue()), entry.getKey()));
+        }
+
+        return answer.toString();
+    }
+
+    private static String definition(BaseOptionModel option) {
+        final StringBuilder definition = new StringBuilder();
+
+        definition.append(String.format("%s%n", option.getDescription()));
+        definition.append(String.format("Type: %s%n", option.getType()));
+        definition.append(String.format("Default value: %s%n",
+                option.getDefaultValue() != null ? option.getDefaultValue() : "none"));
+        definition.append(String.format("Required: %s%n", option.isRequired() ? "yes" : "no"));
+        if (option.getGroup() != null) {
+            definition.append(String.format("Group: %s%n", option.getGroup()));
+        }
+
+        return definition.toString();
+    }
+}
@@ -4,19 +4,39 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
+import java.util.HexFormat;
+import java.util.UUID;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
+import dev.langchain4j.data.document.Metadata;
 import org.apache.camel.jbang.ai.SimpleRequestBuilder;
-import org.apache.camel.jbang.ai.types.AlpacaRecord;
+import org.apache.camel.jbang.ai.util.sink.CompositeRecordSink;
+import org.apache.camel.jbang.ai.util.sink.JsonLinesRecordSink;
+import org.apache.camel.jbang.ai.util.sink.ParquetRecordSink;
+import org.apache.camel.jbang.ai.util.sink.RecordSink;
 import org.apache.camel.tooling.model.BaseOptionModel;
 import org.apache.commons.io.FileUtils;
 
 public final class CatalogUtil {
+    /**
+     * The metadata stored along with each option, as payload fields in Qdrant
+     */
+    public static final String METADATA_COMPONENT = "component";
+    public static final String METADATA_OPTION = "option";
+    public static final String METADATA_KIND = "kind";
+    public static final String METADATA_GROUP = "group";
+    public static final String METADATA_CAMEL_VERSION = "camelVersion";
+
+    /**
+     * The version of the point payload. It is part of the point IDs, so that a reload rewrites the points written
+     * with an older payload (i.e.: without the metadata above) instead of keeping them as unchanged.
+     */
+    public static final int PAYLOAD_VERSION = 2;
+
     private static final String DATASET_DIR = "dataset";
     private static final String PATTERN_FORMAT = "HH:mm:ss";
 
@@ -24,23 +44,15 @@ public final class CatalogUtil {
         throw new IllegalStateException("Util final class should be instantiated.");
     }
 
-    public static void saveRecords(List<AlpacaRecord> alpacaRecords, String componentName) {
-        if (!alpacaRecords.isEmpty()) {
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.enable(SerializationFeature.INDENT_OUTPUT);
-
-            final File file = new File(DATASET_DIR, String.format("camel-%s.json", componentName));
-            file.getParentFile().mkdirs();
-
-            try {
-                mapper.writeValue(file, alpacaRecords);
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to write json file", e);
-            }
-
-            Path parquetOutput = Path.of(DATASET_DIR, String.format("camel-%s.parquet", componentName));
-            ParquetUtil.saveParquet(alpacaRecords, parquetOutput);
-        }
+    /**
+     * Opens the sink of the records of a component, which writes them to the JSON Lines and Parquet files of the
+     * dataset as soon as they are produced
+     */
+    public static RecordSink openRecordSink(String componentName) {
+        return new CompositeRecordSink(
+                new JsonLinesRecordSink(Path.of(DATASET_DIR, String.format("camel-%s.jsonl", componentName))),
+                new ParquetRecordSink(Path.of(DATASET_DIR, String.format("camel-%s.parquet", componentName)),
+                        ParquetRecordSink.DEFAULT_ROW_GROUP_SIZE));
     }
 
     public static void saveDocumentation(String data, String componentName) {
@@ -69,6 +81,59 @@ public final class CatalogUtil {
         return request.build();
     }
 
+    /**
+     * The structured fields of an option, used to filter the searches
+     * @param componentName the component name
+     * @param kind the option kind (i.e.: component or endpoint)
+     * @param optionModel the option
+     * @param camelVersion the version of the catalog the option comes from
+     * @return the metadata
+     */
+    public static Metadata toMetadata(String componentName, String kind, BaseOptionModel optionModel,
+            String camelVersion) {
+        final Metadata metadata = new Metadata()
+                .put(METADATA_COMPONENT, componentName)
+                .put(METADATA_OPTION, optionModel.getName())
+                .put(METADATA_KIND, kind);
+
+        // Metadata does not accept null values
+        if (optionModel.getGroup() != null) {
+            metadata.put(METADATA_GROUP, optionModel.getGroup());
+        }
+        if (camelVersion != null) {
+            metadata.put(METADATA_CAMEL_VERSION, camelVersion);
+        }
+
+        return metadata;
+    }
+
+    /**
+     * Computes a stable point ID for an option. The ID depends on both the identity of the option and the content
+     * of its embeddable text, so an option whose text has not changed keeps its ID across reloads, while one whose
+     * text has changed gets a new one. It also depends on the {@link #PAYLOAD_VERSION}.
+     * @param componentName the component name
+     * @param kind the option kind (i.e.: component or endpoint)
+     * @param optionName the option name
+     * @param text the embeddable text for the option
+     * @return a name-based UUID string
+     */
+    public static String toPointId(String componentName, String kind, String optionName, String text) {
+        final String identity = "v" + PAYLOAD_VERSION + "/" + componentName + "/" + kind + "/" + optionName + "/"
+                + contentHash(text);
+
+        return UUID.nameUUIDFromBytes(identity.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    public static String contentHash(String text) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
     public static String currentTime() {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern(PATTERN_FORMAT)
                 .withZone(ZoneId.systemDefault());
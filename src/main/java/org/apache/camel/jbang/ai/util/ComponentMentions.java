@@ -0,0 +1,59 @@
+package org.apache.camel.jbang.ai.util;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import dev.langchain4j.store.embedding.filter.Filter;
+import org.apache.camel.catalog.DefaultCamelCatalog;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+
+/**
+ * Finds the Camel components named in a question, so that the search can be restricted to their options
+ */
+public final class ComponentMentions {
+    // Component names are made of lower case letters, digits and dashes (i.e.: aws2-s3)
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^a-z0-9-]+");
+    private static final String ARTIFACT_PREFIX = "camel-";
+
+    private static final class NamesHolder {
+        private static final Set<String> NAMES = Set.copyOf(new DefaultCamelCatalog(true).findComponentNames());
+    }
+
+    private ComponentMentions() {
+        throw new IllegalStateException("Util final class should be instantiated.");
+    }
+
+    /**
+     * Finds the known component names in a question. Names are matched as whole words, either bare or as artifact
+     * names (i.e.: kafka or camel-kafka).
+     * @param question the question
+     * @return the component names, in order of appearance
+     */
+    public static Set<String> find(String question) {
+        final Set<String> found = new LinkedHashSet<>();
+
+        for (String word : WORD_SEPARATOR.split(question.toLowerCase(Locale.ROOT))) {
+            final String name = word.startsWith(ARTIFACT_PREFIX) ? word.substring(ARTIFACT_PREFIX.length()) : word;
+            if (NamesHolder.NAMES.contains(name)) {
+                found.add(name);
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * A filter matching the options of the components named in a question
+     * @param question the question
+     * @return the filter or null if the question names no component
+     */
+    public static Filter filterFor(String question) {
+        final Set<String> names = find(question);
+
+        return names.isEmpty() ? null : metadataKey(CatalogUtil.METADATA_COMPONENT).isIn(List.copyOf(names));
+    }
+}
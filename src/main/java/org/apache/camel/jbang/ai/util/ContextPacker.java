@@ -0,0 +1,119 @@
+package org.apache.camel.jbang.ai.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.openai.OpenAiTokenizer;
+import dev.langchain4j.store.embedding.CosineSimilarity;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+
+/**
+ * Selects the retrieved matches that go into a prompt: highest scores first, without near-duplicates and within a
+ * token budget.
+ * <p>
+ * Tokens are counted locally with the cl100k tokenizer. The served models use their own tokenizers, so the counts are
+ * estimates, but close enough to keep the prompts within a predictable size.
+ */
+public final class ContextPacker {
+    public static final int DEFAULT_TOKEN_BUDGET = 1024;
+    public static final double DEFAULT_DUPLICATE_THRESHOLD = 0.97;
+
+    // The matches are joined with a blank line
+    private static final int SEPARATOR_TOKENS = 1;
+    // Below this, a truncated match is mostly noise
+    private static final int MIN_TRUNCATED_TOKENS = 32;
+
+    private static final class TokenizerHolder {
+        private static final OpenAiTokenizer TOKENIZER = new OpenAiTokenizer();
+    }
+
+    private final int tokenBudget;
+    private final double duplicateThreshold;
+
+    /**
+     * Constructor
+     * @param tokenBudget the maximum number of tokens of context (0 for no limit)
+     * @param duplicateThreshold the cosine similarity above which two matches are considered duplicates
+     */
+    public ContextPacker(int tokenBudget, double duplicateThreshold) {
+        this.tokenBudget = tokenBudget;
+        this.duplicateThreshold = duplicateThreshold;
+    }
+
+    public ContextPacker(int tokenBudget) {
+        this(tokenBudget, DEFAULT_DUPLICATE_THRESHOLD);
+    }
+
+    public int tokenBudget() {
+        return tokenBudget;
+    }
+
+    /**
+     * Packs the matches
+     * @param matches the retrieved matches
+     * @return the matches to include in the prompt, highest score first. The last one may be truncated.
+     */
+    public List<EmbeddingMatch<TextSegment>> pack(List<EmbeddingMatch<TextSegment>> matches) {
+        final List<EmbeddingMatch<TextSegment>> sorted = new ArrayList<>(matches);
+        sorted.sort(Comparator.comparing(EmbeddingMatch<TextSegment>::score).reversed());
+
+        final List<EmbeddingMatch<TextSegment>> packed = new ArrayList<>(sorted.size());
+        final Set<String> texts = new HashSet<>();
+        int remaining = tokenBudget > 0 ? tokenBudget : Integer.MAX_VALUE;
+
+        for (EmbeddingMatch<TextSegment> match : sorted) {
+            final String text = match.embedded().text();
+            if (!texts.add(text) || isNearDuplicate(match, packed)) {
+                continue;
+            }
+
+            final int tokens = (packed.isEmpty() ? 0 : SEPARATOR_TOKENS) + countTokens(text);
+            if (tokens <= remaining) {
+                packed.add(match);
+                remaining -= tokens;
+                continue;
+            }
+
+            // The best match is always kept, even if it has to be cut
+            if (packed.isEmpty() || remaining >= MIN_TRUNCATED_TOKENS) {
+                packed.add(truncate(match, remaining - (packed.isEmpty() ? 0 : SEPARATOR_TOKENS)));
+            }
+            break;
+        }
+
+        return packed;
+    }
+
+    private boolean isNearDuplicate(EmbeddingMatch<TextSegment> match, List<EmbeddingMatch<TextSegment>> packed) {
+        final Embedding embedding = match.embedding();
+        if (embedding == null) {
+            return false;
+        }
+
+        for (EmbeddingMatch<TextSegment> other : packed) {
+            if (other.embedding() != null
+                    && CosineSimilarity.between(embedding, other.embedding()) >= duplicateThreshold) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public static int countTokens(String text) {
+        return TokenizerHolder.TOKENIZER.estimateTokenCountInText(text);
+    }
+
+    private static EmbeddingMatch<TextSegment> truncate(EmbeddingMatch<TextSegment> match, int maxTokens) {
+        final OpenAiTokenizer tokenizer = TokenizerHolder.TOKENIZER;
+        final String truncated = tokenizer.decode(tokenizer.encode(match.embedded().text(), Math.max(maxTokens, 0)));
+
+        return new EmbeddingMatch<>(match.score(), match.embeddingId(), match.embedding(),
+                TextSegment.from(truncated, match.embedded().metadata()));
+    }
+}
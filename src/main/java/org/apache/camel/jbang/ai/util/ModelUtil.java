@@ -2,27 +2,63 @@ package org.apache.camel.jbang.ai.util;
 
 import java.time.Duration;
 
-import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 
 public final class ModelUtil {
-    public static OpenAiStreamingChatModel buildModel(String url, String apiKey, String modelName) {
-        return OpenAiStreamingChatModel.builder()
-                .baseUrl(url)
-                .apiKey(apiKey)
-                .timeout(Duration.ofMinutes(2))
-                .maxTokens(Integer.MAX_VALUE)
-                .modelName(modelName).build();
+    private static final double CONSERVATIVE_TEMPERATURE = 0.1;
+    private static final double CONSERVATIVE_TOP_P = 0.1;
+    private static final int CONSERVATIVE_SEED = 33;
+    private static final String JSON_RESPONSE_FORMAT = "json_object";
+
+    /**
+     * The timeout of the HTTP calls of the models: how long to wait for the response to start, then between its
+     * tokens
+     */
+    public static final Duration TIMEOUT = Duration.ofMinutes(2);
+
+    public static StreamingChatLanguageModel buildModel(String url, String apiKey, String modelName) {
+        return new OpenAiClientChatModel(url, apiKey, TIMEOUT, modelName, null, null, null, Integer.MAX_VALUE, null);
+    }
+
+    public static StreamingChatLanguageModel buildConservativeModel(String url, String apiKey, String modelName) {
+        return new OpenAiClientChatModel(url, apiKey, TIMEOUT, modelName, CONSERVATIVE_TEMPERATURE,
+                CONSERVATIVE_TOP_P, CONSERVATIVE_SEED, Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * Builds a model that only replies with a JSON object (the structure is up to the prompt)
+     */
+    public static StreamingChatLanguageModel buildJsonModel(String url, String apiKey, String modelName) {
+        return new OpenAiClientChatModel(url, apiKey, TIMEOUT, modelName, null, null, null, Integer.MAX_VALUE,
+                JSON_RESPONSE_FORMAT);
+    }
+
+    /**
+     * Describes the settings of the models built by {@link #buildModel}, which change its responses (i.e.: to key
+     * the cached responses)
+     */
+    public static String describeModel(String modelName) {
+        return describe(modelName, null, null, null, null);
+    }
+
+    /**
+     * Describes the settings of the models built by {@link #buildConservativeModel}
+     */
+    public static String describeConservativeModel(String modelName) {
+        return describe(modelName, CONSERVATIVE_TEMPERATURE, CONSERVATIVE_TOP_P, CONSERVATIVE_SEED, null);
+    }
+
+    /**
+     * Describes the settings of the models built by {@link #buildJsonModel}
+     */
+    public static String describeJsonModel(String modelName) {
+        return describe(modelName, null, null, null, JSON_RESPONSE_FORMAT);
     }
 
-    public static OpenAiStreamingChatModel buildConservativeModel(String url, String apiKey, String modelName) {
-        return OpenAiStreamingChatModel.builder()
-                .baseUrl(url)
-                .apiKey(apiKey)
-                .timeout(Duration.ofMinutes(2))
-                .temperature(0.1)
-                .topP(0.1)
-                .seed(33)
-                .maxTokens(Integer.MAX_VALUE)
-                .modelName(modelName).build();
+    private static String describe(
+            String modelName, Double temperature, Double topP, Integer seed, String responseFormat) {
+        // The unset parameters use the defaults of the server
+        return String.format("model=%s;temperature=%s;topP=%s;seed=%s;maxTokens=%d;responseFormat=%s", modelName,
+                temperature, topP, seed, Integer.MAX_VALUE, responseFormat);
     }
 }
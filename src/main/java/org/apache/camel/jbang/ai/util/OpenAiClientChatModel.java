@@ -0,0 +1,109 @@
+package org.apache.camel.jbang.ai.util;
+
+import java.time.Duration;
+import java.util.List;
+
+import dev.ai4j.openai4j.DefaultOpenAiClient;
+import dev.ai4j.openai4j.OpenAiClient;
+import dev.ai4j.openai4j.chat.ChatCompletionChoice;
+import dev.ai4j.openai4j.chat.ChatCompletionRequest;
+import dev.ai4j.openai4j.chat.ResponseFormat;
+import dev.ai4j.openai4j.chat.ResponseFormatType;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+
+import static dev.langchain4j.model.openai.InternalOpenAiHelper.finishReasonFrom;
+import static dev.langchain4j.model.openai.InternalOpenAiHelper.toOpenAiMessages;
+
+/**
+ * A streaming chat model that calls the OpenAI API through openai4j directly.
+ * <p>
+ * langchain4j's {@code OpenAiStreamingChatModel} fails in its own error handling when an HTTP error arrives before
+ * the first token from an endpoint other than OpenAI's, so the handler never learns about it (i.e.: a 429 or a 503
+ * from vLLM). This one reports every error to the handler, as the {@code OpenAiHttpException} of openai4j for the
+ * HTTP errors.
+ */
+public final class OpenAiClientChatModel implements StreamingChatLanguageModel {
+    private final OpenAiClient client;
+    private final String modelName;
+    private final Double temperature;
+    private final Double topP;
+    private final Integer seed;
+    private final Integer maxTokens;
+    private final String responseFormat;
+
+    /**
+     * Constructor
+     * @param url the API URL
+     * @param apiKey the API key
+     * @param timeout how long to wait for the response to start, then between its tokens
+     * @param modelName the model name
+     * @param temperature the sampling temperature (null for the default of the server)
+     * @param topP the nucleus sampling probability (null for the default of the server)
+     * @param seed the sampling seed (null for the default of the server)
+     * @param maxTokens the maximum number of tokens to generate (null for the default of the server)
+     * @param responseFormat the response format type (i.e.: json_object, or null for the default of the server)
+     */
+    public OpenAiClientChatModel(String url, String apiKey, Duration timeout, String modelName, Double temperature,
+            Double topP, Integer seed, Integer maxTokens, String responseFormat) {
+        this.client = DefaultOpenAiClient.builder()
+                .baseUrl(url)
+                .openAiApiKey(apiKey)
+                .callTimeout(timeout)
+                .connectTimeout(timeout)
+                .readTimeout(timeout)
+                .writeTimeout(timeout)
+                .build();
+        this.modelName = modelName;
+        this.temperature = temperature;
+        this.topP = topP;
+        this.seed = seed;
+        this.maxTokens = maxTokens;
+        this.responseFormat = responseFormat;
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+        final ChatCompletionRequest.Builder request = ChatCompletionRequest.builder()
+                .model(modelName)
+                .messages(toOpenAiMessages(messages))
+                .temperature(temperature)
+                .topP(topP)
+                .seed(seed)
+                .maxTokens(maxTokens);
+        if (responseFormat != null) {
+            request.responseFormat(ResponseFormat.builder()
+                    .type(ResponseFormatType.valueOf(responseFormat.toUpperCase()))
+                    .build());
+        }
+
+        final StringBuffer text = new StringBuffer();
+        final String[] finishReason = new String[1];
+
+        client.chatCompletion(request.build())
+                .onPartialResponse(partialResponse -> {
+                    final List<ChatCompletionChoice> choices = partialResponse.choices();
+                    if (choices == null || choices.isEmpty()) {
+                        return;
+                    }
+
+                    final ChatCompletionChoice choice = choices.get(0);
+                    if (choice.finishReason() != null) {
+                        finishReason[0] = choice.finishReason();
+                    }
+
+                    final String token = choice.delta() != null ? choice.delta().content() : null;
+                    if (token != null && !token.isEmpty()) {
+                        text.append(token);
+                        handler.onNext(token);
+                    }
+                })
+                .onComplete(() -> handler.onComplete(Response.from(AiMessage.from(text.toString()), null,
+                        finishReason[0] != null ? finishReasonFrom(finishReason[0]) : null)))
+                .onError(handler::onError)
+                .execute();
+    }
+}
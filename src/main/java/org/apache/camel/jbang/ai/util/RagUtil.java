@@ -6,33 +6,48 @@ import java.util.Map;
 
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
 import dev.langchain4j.model.input.Prompt;
 import dev.langchain4j.model.input.PromptTemplate;
 import dev.langchain4j.store.embedding.EmbeddingMatch;
 import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.qdrant.QdrantEmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
 
 import static java.util.stream.Collectors.joining;
 
 public final class RagUtil {
-    public static List<EmbeddingMatch<TextSegment>> findRelevant(String host, int port, String collectionName, String searchTerm) {
-        EmbeddingModel embeddingModel = new AllMiniLmL6V2EmbeddingModel();
-        Embedding questionEmbedding = embeddingModel.embed(searchTerm).content();
-
-        EmbeddingStore<TextSegment> embeddingStore =
-                QdrantEmbeddingStore.builder()
-                        .host(host)
-                        .port(port)
-                        .collectionName(collectionName)
-                        .build();
-
-        int maxResults = 4;
-        double minScore = 0.7;
-        List<EmbeddingMatch<TextSegment>> relevantEmbeddings
-                = embeddingStore.findRelevant(questionEmbedding, maxResults, minScore);
-        return relevantEmbeddings;
+    public static Embedding embed(String text) {
+        return ResourceRegistry.embeddingModel().embed(text).content();
+    }
+
+    public static List<EmbeddingMatch<TextSegment>> findRelevant(
+            EmbeddingStore<TextSegment> embeddingStore, String searchTerm, RetrievalPolicy retrievalPolicy) {
+        return findRelevant(embeddingStore, searchTerm, embed(searchTerm), retrievalPolicy);
+    }
+
+    /**
+     * Finds the context for a question. When the question names known components, only their options are searched.
+     * @param embeddingStore the store to search
+     * @param question the question
+     * @param questionEmbedding the embedding of the question
+     * @param retrievalPolicy decides which matches are retrieved
+     * @return the relevant matches
+     */
+    public static List<EmbeddingMatch<TextSegment>> findRelevant(
+            EmbeddingStore<TextSegment> embeddingStore, String question, Embedding questionEmbedding,
+            RetrievalPolicy retrievalPolicy) {
+        final Filter filter = ComponentMentions.filterFor(question);
+        if (filter != null) {
+            final List<EmbeddingMatch<TextSegment>> matches =
+                    retrievalPolicy.retrieve(embeddingStore, question, questionEmbedding, filter);
+
+            // Common words are also component names (i.e.: log or file), so the filter may be a false positive.
+            // Collections loaded without metadata cannot be filtered either.
+            if (!matches.isEmpty()) {
+                return matches;
+            }
+        }
+
+        return retrievalPolicy.retrieve(embeddingStore, question, questionEmbedding, null);
     }
 
     public static Prompt toPrompt(PromptTemplate promptTemplate, List<EmbeddingMatch<TextSegment>> relevantEmbeddings, String question) {
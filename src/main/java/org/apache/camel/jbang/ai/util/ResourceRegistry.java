@@ -0,0 +1,182 @@
+package org.apache.camel.jbang.ai.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.QdrantGrpcClient;
+import org.apache.camel.catalog.CamelCatalog;
+import org.apache.camel.catalog.DefaultCamelCatalog;
+import org.apache.camel.jbang.ai.Loader;
+import org.apache.camel.jbang.ai.load.LoadItem;
+import org.apache.camel.jbang.ai.rerank.OnnxCrossEncoder;
+import org.apache.camel.jbang.ai.load.QdrantWriter;
+import org.apache.camel.jbang.ai.store.LexicalIndex;
+import org.apache.camel.jbang.ai.store.LocalVectorStore;
+import org.apache.camel.jbang.ai.store.QdrantVectorStore;
+import org.apache.camel.jbang.ai.util.cache.CachedEmbeddingModel;
+import org.apache.camel.jbang.ai.util.cache.EmbeddingCache;
+
+/**
+ * Process-wide registry of the expensive resources: the embedding model (along with its cache), the Qdrant
+ * clients, the vector stores, the lexical index, the cross-encoders and the chat models. They are created on first
+ * use and reused for the life of the JVM, then closed on shutdown.
+ */
+public final class ResourceRegistry {
+    private static final Map<String, QdrantClient> CLIENTS = new ConcurrentHashMap<>();
+    private static final Map<String, EmbeddingStore<TextSegment>> STORES = new ConcurrentHashMap<>();
+    // OkHttp runs at most 5 streaming requests per host for each client, so every thread uses its own model
+    private static final Map<String, ThreadLocal<StreamingChatLanguageModel>> CHAT_MODELS = new ConcurrentHashMap<>();
+    private static final Map<Path, OnnxCrossEncoder> CROSS_ENCODERS = new ConcurrentHashMap<>();
+
+    private static int embeddingCacheCapacity;
+    private static EmbeddingCache embeddingCache;
+    private static CachedEmbeddingModel embeddingModel;
+    private static boolean shutdownHookRegistered;
+    private static LexicalIndex lexicalIndex;
+
+    private ResourceRegistry() {
+        throw new IllegalStateException("Util final class should be instantiated.");
+    }
+
+    /**
+     * Sets the capacity of the embedding cache. Only has effect if called before the embedding model is first used.
+     * @param capacity the maximum number of cached embeddings, zero to reuse the capacity of the existing cache or
+     *                 a negative value to disable the cache
+     */
+    public static synchronized void configureEmbeddingCache(int capacity) {
+        embeddingCacheCapacity = capacity;
+    }
+
+    /**
+     * The shared embedding model. The ONNX model itself is only loaded on the first cache miss. The model runs the
+     * inference on the calling thread, so callers control the parallelism.
+     */
+    public static synchronized CachedEmbeddingModel embeddingModel() {
+        if (embeddingModel == null) {
+            registerShutdownHook();
+
+            embeddingCache = embeddingCacheCapacity >= 0 ? EmbeddingCache.openDefault(embeddingCacheCapacity) : null;
+            embeddingModel = new CachedEmbeddingModel(() -> new AllMiniLmL6V2EmbeddingModel(Runnable::run), embeddingCache);
+        }
+
+        return embeddingModel;
+    }
+
+    /**
+     * The shared Qdrant client for the given server
+     */
+    public static QdrantClient qdrantClient(String host, int port) {
+        registerShutdownHook();
+
+        return CLIENTS.computeIfAbsent(host + ":" + port,
+                k -> new QdrantClient(QdrantGrpcClient.newBuilder(host, port, false).build()));
+    }
+
+    /**
+     * The shared embedding store for the given collection. It uses the shared client for the server.
+     */
+    public static EmbeddingStore<TextSegment> embeddingStore(String host, int port, String collectionName) {
+        return STORES.computeIfAbsent(host + ":" + port + "/" + collectionName,
+                k -> new QdrantVectorStore(qdrantClient(host, port), collectionName, QdrantWriter.PAYLOAD_TEXT_KEY));
+    }
+
+    /**
+     * The shared local vector store at the given location
+     */
+    public static EmbeddingStore<TextSegment> localStore(Path path) {
+        return STORES.computeIfAbsent(path.toAbsolutePath().toString(), k -> {
+            try {
+                return LocalVectorStore.open(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to open the local vector store at " + path, e);
+            }
+        });
+    }
+
+    /**
+     * The shared lexical index over the options of the catalog. Built on first use, from the same items the
+     * {@code load} command writes, so the documents have the same IDs as the points.
+     */
+    public static synchronized LexicalIndex lexicalIndex() {
+        if (lexicalIndex == null) {
+            final CamelCatalog catalog = new DefaultCamelCatalog(true);
+            final String camelVersion = catalog.getCatalogVersion();
+
+            final List<String> ids = new ArrayList<>();
+            final List<TextSegment> segments = new ArrayList<>();
+            for (String componentName : catalog.findComponentNames()) {
+                for (LoadItem item : Loader.readComponent(catalog, componentName, camelVersion)) {
+                    ids.add(item.id());
+                    segments.add(item.segment());
+                }
+            }
+
+            lexicalIndex = new LexicalIndex(ids, segments);
+        }
+
+        return lexicalIndex;
+    }
+
+    /**
+     * The shared cross-encoder at the given location
+     */
+    public static OnnxCrossEncoder crossEncoder(Path modelPath) {
+        registerShutdownHook();
+
+        return CROSS_ENCODERS.computeIfAbsent(modelPath.toAbsolutePath(), k -> {
+            try {
+                return new OnnxCrossEncoder(modelPath);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to load the cross-encoder at " + modelPath, e);
+            }
+        });
+    }
+
+    /**
+     * The chat model of the calling thread for the given API endpoint and model. Reusing it keeps the HTTP
+     * connections to the endpoint open between requests, and having one per thread lets the threads of a batch or of
+     * the server stream their responses at once.
+     */
+    public static StreamingChatLanguageModel chatModel(String url, String apiKey, String modelName) {
+        return CHAT_MODELS.computeIfAbsent(url + "|" + apiKey + "|" + modelName,
+                k -> ThreadLocal.withInitial(() -> ModelUtil.buildModel(url, apiKey, modelName))).get();
+    }
+
+    /**
+     * Closes all the resources. Called automatically on shutdown.
+     */
+    public static synchronized void close() {
+        // The Qdrant stores only wrap the clients and the local ones only hold memory mappings, so closing the
+        // clients is enough
+        STORES.clear();
+        CHAT_MODELS.clear();
+        CROSS_ENCODERS.values().forEach(OnnxCrossEncoder::close);
+        CROSS_ENCODERS.clear();
+        CLIENTS.values().forEach(QdrantClient::close);
+        CLIENTS.clear();
+
+        if (embeddingCache != null) {
+            embeddingCache.close();
+            embeddingCache = null;
+        }
+        embeddingModel = null;
+        lexicalIndex = null;
+    }
+
+    private static synchronized void registerShutdownHook() {
+        if (!shutdownHookRegistered) {
+            Runtime.getRuntime().addShutdownHook(new Thread(ResourceRegistry::close, "resource-registry-shutdown"));
+            shutdownHookRegistered = true;
+        }
+    }
+}
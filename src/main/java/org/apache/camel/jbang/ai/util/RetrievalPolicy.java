@@ -0,0 +1,288 @@
+package org.apache.camel.jbang.ai.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.CosineSimilarity;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import org.apache.camel.jbang.ai.rerank.Reranker;
+
+/**
+ * Decides which matches are retrieved for a question.
+ * <p>
+ * The number of matches adapts to the score distribution: only the matches scoring within {@code scoreWindow} of the
+ * best one are kept, so a question with one clear answer gets a small context and a broad one gets up to
+ * {@code maxResults}. The matches are then selected with maximal marginal relevance (MMR), which trades some relevance
+ * for diversity, so that the context is not made of near-identical options of the same component.
+ * <p>
+ * With hybrid search, a BM25 search over the catalog text runs along with the vector search and both rankings are
+ * merged with reciprocal rank fusion (RRF). The fused scores only reflect ranks, so the number of matches does not
+ * adapt to them, but MMR still applies. The lexical index is built from the local catalog, so when the store was loaded
+ * from another Camel version the documents do not match the points and only the vector search is used.
+ * <p>
+ * With a {@link Reranker}, more candidates are retrieved and reordered by a cross-encoder before the selection, which
+ * then works on the cross-encoder scores.
+ */
+public final class RetrievalPolicy {
+    /**
+     * Short, focused answers: a few options, with some diversity
+     */
+    public static final RetrievalPolicy WHATIS = new RetrievalPolicy(4, 0.7, 0.1, 0.7, false);
+    /**
+     * Routes usually combine several components, so more, and more diverse, context is retrieved
+     */
+    public static final RetrievalPolicy GENERATE_CODE = new RetrievalPolicy(6, 0.65, 0.15, 0.5, false);
+
+    // How many more candidates than results are fetched for MMR to choose from
+    private static final int CANDIDATE_FACTOR = 3;
+    // The usual RRF constant: dampens the weight of the first ranks
+    private static final int RRF_K = 60;
+    private static final AtomicBoolean VERSION_MISMATCH_REPORTED = new AtomicBoolean();
+
+    private final int maxResults;
+    private final double minScore;
+    private final double scoreWindow;
+    private final double mmrLambda;
+    private final boolean hybrid;
+    private final Reranker reranker;
+
+    /**
+     * Constructor
+     * @param maxResults the maximum number of matches
+     * @param minScore the minimum relevance score of a match
+     * @param scoreWindow how far below the best score a match can be (0 to disable the adaptive number of matches)
+     * @param mmrLambda the weight of relevance versus diversity, between 0 and 1 (1 to disable MMR)
+     * @param hybrid whether to merge the vector search with a lexical one
+     */
+    public RetrievalPolicy(int maxResults, double minScore, double scoreWindow, double mmrLambda, boolean hybrid) {
+        this(maxResults, minScore, scoreWindow, mmrLambda, hybrid, null);
+    }
+
+    private RetrievalPolicy(
+            int maxResults, double minScore, double scoreWindow, double mmrLambda, boolean hybrid, Reranker reranker) {
+        if (maxResults <= 0) {
+            throw new IllegalArgumentException("The maximum number of results must be positive: " + maxResults);
+        }
+        if (mmrLambda < 0 || mmrLambda > 1) {
+            throw new IllegalArgumentException("The MMR lambda must be between 0 and 1: " + mmrLambda);
+        }
+
+        this.maxResults = maxResults;
+        this.minScore = minScore;
+        this.scoreWindow = scoreWindow;
+        this.mmrLambda = mmrLambda;
+        this.hybrid = hybrid;
+        this.reranker = reranker;
+    }
+
+    public RetrievalPolicy withHybrid(boolean hybrid) {
+        return new RetrievalPolicy(maxResults, minScore, scoreWindow, mmrLambda, hybrid, reranker);
+    }
+
+    /**
+     * @param reranker the reranker to use (null to disable reranking)
+     */
+    public RetrievalPolicy withReranker(Reranker reranker) {
+        return new RetrievalPolicy(maxResults, minScore, scoreWindow, mmrLambda, hybrid, reranker);
+    }
+
+    public boolean isHybrid() {
+        return hybrid;
+    }
+
+    public int maxResults() {
+        return maxResults;
+    }
+
+    public double minScore() {
+        return minScore;
+    }
+
+    public double scoreWindow() {
+        return scoreWindow;
+    }
+
+    public double mmrLambda() {
+        return mmrLambda;
+    }
+
+    /**
+     * Retrieves the matches for a question
+     * @param embeddingStore the store to search
+     * @param question the question
+     * @param questionEmbedding the embedding of the question
+     * @param filter restricts the search to the matching metadata (null to search everything)
+     * @return the selected matches, in the order they were selected
+     */
+    public List<EmbeddingMatch<TextSegment>> retrieve(
+            EmbeddingStore<TextSegment> embeddingStore, String question, Embedding questionEmbedding, Filter filter) {
+        int candidates = mmrLambda < 1 ? maxResults * CANDIDATE_FACTOR : maxResults;
+        if (reranker != null) {
+            candidates = Math.max(candidates, reranker.candidates());
+        }
+
+        final int lexicalCandidates = candidates;
+        final EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                .queryEmbedding(questionEmbedding)
+                .maxResults(candidates)
+                .minScore(minScore)
+                .filter(filter)
+                .build();
+
+        if (!hybrid) {
+            return rerankAndSelect(question, embeddingStore.search(request).matches(), scoreWindow);
+        }
+
+        final CompletableFuture<List<EmbeddingMatch<TextSegment>>> lexical = CompletableFuture.supplyAsync(
+                () -> ResourceRegistry.lexicalIndex().search(question, lexicalCandidates, filter));
+        final List<EmbeddingMatch<TextSegment>> dense = embeddingStore.search(request).matches();
+        final List<EmbeddingMatch<TextSegment>> lexicalMatches = lexical.join();
+        if (!sameCamelVersion(dense, lexicalMatches)) {
+            return rerankAndSelect(question, dense, scoreWindow);
+        }
+
+        return rerankAndSelect(question, fuse(dense, lexicalMatches), 0);
+    }
+
+    /*
+     * The IDs of the lexical documents only match the points loaded from the same catalog: otherwise the fusion would
+     * keep both copies of an option, and MMR could not compare the lexical ones since they have no embedding
+     */
+    private static boolean sameCamelVersion(
+            List<EmbeddingMatch<TextSegment>> dense, List<EmbeddingMatch<TextSegment>> lexical) {
+        if (dense.isEmpty() || lexical.isEmpty()) {
+            return true;
+        }
+
+        final String indexVersion = lexical.get(0).embedded().metadata().getString(CatalogUtil.METADATA_CAMEL_VERSION);
+        for (EmbeddingMatch<TextSegment> match : dense) {
+            final String storeVersion = match.embedded().metadata().getString(CatalogUtil.METADATA_CAMEL_VERSION);
+            if (!Objects.equals(indexVersion, storeVersion)) {
+                if (VERSION_MISMATCH_REPORTED.compareAndSet(false, true)) {
+                    System.err.printf("Ignoring --hybrid-search: the store was loaded from Camel %s, but the local "
+                            + "catalog is Camel %s%n", storeVersion, indexVersion);
+                }
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * The cross-encoder scores are proper relevance scores, so the score window applies to them even after a fusion
+     */
+    private List<EmbeddingMatch<TextSegment>> rerankAndSelect(
+            String question, List<EmbeddingMatch<TextSegment>> candidates, double window) {
+        if (reranker == null) {
+            return select(candidates, window);
+        }
+
+        return select(reranker.rerank(question, candidates), scoreWindow);
+    }
+
+    /**
+     * Selects the matches among the candidates
+     * @param candidates the candidates, highest score first
+     * @return the selected matches, in the order they were selected
+     */
+    public List<EmbeddingMatch<TextSegment>> select(List<EmbeddingMatch<TextSegment>> candidates) {
+        return select(candidates, scoreWindow);
+    }
+
+    /*
+     * Reciprocal rank fusion. The fused scores are scaled so that a match ranked first by both searches scores 1, which
+     * keeps them on the same scale as the similarities MMR compares them with.
+     */
+    private static List<EmbeddingMatch<TextSegment>> fuse(
+            List<EmbeddingMatch<TextSegment>> dense, List<EmbeddingMatch<TextSegment>> lexical) {
+        final Map<String, EmbeddingMatch<TextSegment>> matches = new LinkedHashMap<>();
+        final Map<String, Double> scores = new HashMap<>();
+
+        // The dense matches come first, since they carry the embeddings MMR needs
+        for (List<EmbeddingMatch<TextSegment>> ranking : List.of(dense, lexical)) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                final EmbeddingMatch<TextSegment> match = ranking.get(rank);
+                matches.putIfAbsent(match.embeddingId(), match);
+                scores.merge(match.embeddingId(), 1.0 / (RRF_K + rank + 1), Double::sum);
+            }
+        }
+
+        final double maxScore = 2.0 / (RRF_K + 1);
+        final List<EmbeddingMatch<TextSegment>> fused = new ArrayList<>(matches.size());
+        for (EmbeddingMatch<TextSegment> match : matches.values()) {
+            fused.add(new EmbeddingMatch<>(scores.get(match.embeddingId()) / maxScore, match.embeddingId(),
+                    match.embedding(), match.embedded()));
+        }
+        fused.sort(Comparator.comparingDouble(EmbeddingMatch<TextSegment>::score).reversed());
+        return fused;
+    }
+
+    private List<EmbeddingMatch<TextSegment>> select(List<EmbeddingMatch<TextSegment>> candidates, double window) {
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+
+        final List<EmbeddingMatch<TextSegment>> remaining = new ArrayList<>(candidates.size());
+        final double bestScore = candidates.get(0).score();
+        for (EmbeddingMatch<TextSegment> candidate : candidates) {
+            if (window > 0 && bestScore - candidate.score() > window) {
+                break;
+            }
+            remaining.add(candidate);
+        }
+
+        if (mmrLambda >= 1) {
+            return remaining.subList(0, Math.min(maxResults, remaining.size()));
+        }
+
+        final List<EmbeddingMatch<TextSegment>> selected = new ArrayList<>(maxResults);
+        while (selected.size() < maxResults && !remaining.isEmpty()) {
+            int best = 0;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < remaining.size(); i++) {
+                final EmbeddingMatch<TextSegment> candidate = remaining.get(i);
+                final double value = mmrLambda * candidate.score()
+                        - (1 - mmrLambda) * maxSimilarity(candidate, selected);
+                if (value > bestValue) {
+                    best = i;
+                    bestValue = value;
+                }
+            }
+            selected.add(remaining.remove(best));
+        }
+
+        return selected;
+    }
+
+    /*
+     * On the same scale as the relevance scores, so that both terms of MMR weigh the same
+     */
+    private static double maxSimilarity(EmbeddingMatch<TextSegment> match, List<EmbeddingMatch<TextSegment>> others) {
+        if (match.embedding() == null) {
+            return 0;
+        }
+
+        double max = 0;
+        for (EmbeddingMatch<TextSegment> other : others) {
+            if (other.embedding() != null) {
+                final double cosine = CosineSimilarity.between(match.embedding(), other.embedding());
+                max = Math.max(max, RelevanceScore.fromCosineSimilarity(cosine));
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,295 @@
+package org.apache.camel.jbang.ai.util.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.store.embedding.CosineSimilarity;
+
+/**
+ * A persistent cache of generated answers. An answer is reused when a new question is semantically close to the one
+ * that produced it (its embedding is within a cosine similarity threshold) and the retrieval returned the same
+ * context for it, with the same model and system prompt.
+ * <p>
+ * Entries expire after a time-to-live and the least recently used ones are evicted when the cache is full. The
+ * cache of a collection must be invalidated when the collection is reloaded.
+ * <p>
+ * The cache file is append-only: one JSON line per answer. A lookup never writes to it, as the last use of an answer
+ * is only tracked in memory, and new answers are appended to it. Before each lookup, the lines appended by other
+ * processes sharing the file are read, so that they see each other's answers. Once the file holds twice as many lines
+ * as the cache can keep, it is compacted to the current entries, which may drop an answer being appended at the same
+ * time by another process.
+ */
+public final class AnswerCache {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * A cached answer. The embedding is stored as raw bytes, which Jackson writes as base64: much more compact than
+     * an array of floats.
+     */
+    record Entry(String question, byte[] embedding, List<String> contextIds, String modelName, String systemPrompt,
+            String answer, long createdAt, long lastUsedAt) {
+
+        Entry touch(long now) {
+            return new Entry(question, embedding, contextIds, modelName, systemPrompt, answer, createdAt, now);
+        }
+    }
+
+    private final Path path;
+    private final int maxEntries;
+    private final Duration ttl;
+    private final double threshold;
+    private final List<Entry> entries = new ArrayList<>();
+
+    // What was read from the cache file so far
+    private Object fileKey;
+    private long offset;
+    private int lines;
+
+    /**
+     * Constructor. Loads the existing entries, if any.
+     * @param path the cache file
+     * @param maxEntries the maximum number of answers to keep
+     * @param ttl how long an answer can be reused
+     * @param threshold the minimum cosine similarity between two questions for them to share an answer
+     */
+    public AnswerCache(Path path, int maxEntries, Duration ttl, double threshold) {
+        this.path = path;
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.threshold = threshold;
+
+        refresh();
+        evict();
+    }
+
+    /**
+     * Discards all the cached answers in the given cache file
+     */
+    public static void invalidate(Path path) throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Finds a cached answer
+     * @param questionEmbedding the embedding of the question
+     * @param contextIds the IDs of the context retrieved for the question
+     * @param modelName the model used to answer
+     * @param systemPrompt the system prompt used to answer
+     * @return the answer or null if there is none
+     */
+    public synchronized String find(float[] questionEmbedding, List<String> contextIds, String modelName,
+            String systemPrompt) {
+        refresh();
+
+        final long now = System.currentTimeMillis();
+        entries.removeIf(entry -> isExpired(entry, now));
+
+        final Set<String> context = Set.copyOf(contextIds);
+
+        Entry best = null;
+        double bestSimilarity = threshold;
+        for (Entry entry : entries) {
+            if (!Objects.equals(entry.modelName(), modelName) || !Objects.equals(entry.systemPrompt(), systemPrompt)
+                    || !context.equals(Set.copyOf(entry.contextIds()))) {
+                continue;
+            }
+
+            final float[] embedding = toVector(entry.embedding());
+            if (embedding.length != questionEmbedding.length) {
+                continue;
+            }
+
+            final double similarity =
+                    CosineSimilarity.between(Embedding.from(questionEmbedding), Embedding.from(embedding));
+            if (similarity >= bestSimilarity) {
+                best = entry;
+                bestSimilarity = similarity;
+            }
+        }
+
+        if (best == null) {
+            return null;
+        }
+
+        entries.set(entries.indexOf(best), best.touch(now));
+        return best.answer();
+    }
+
+    /**
+     * Stores an answer, evicting the least recently used ones if the cache is full
+     */
+    public synchronized void put(String question, float[] questionEmbedding, List<String> contextIds, String modelName,
+            String systemPrompt, String answer) {
+        final long now = System.currentTimeMillis();
+        final Entry entry = new Entry(question, toBytes(questionEmbedding), List.copyOf(contextIds), modelName,
+                systemPrompt, answer, now, now);
+
+        try {
+            append(entry);
+            // Reads the new entry back, along with those appended by other processes in the meantime
+            refresh();
+        } catch (IOException e) {
+            System.err.printf("Unable to save the answer cache at %s: %s%n", path, e.getMessage());
+            entries.add(entry);
+        }
+
+        evict();
+        if (lines > 2 * maxEntries) {
+            compact();
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.createdAt() > ttl.toMillis();
+    }
+
+    private void evict() {
+        if (entries.size() > maxEntries) {
+            entries.sort(Comparator.comparingLong(Entry::lastUsedAt).reversed());
+            entries.subList(maxEntries, entries.size()).clear();
+        }
+    }
+
+    /**
+     * Reads the lines appended to the cache file since the last time, or all of them if the file was replaced
+     */
+    private void refresh() {
+        try {
+            if (!Files.exists(path)) {
+                clear(null);
+                return;
+            }
+
+            final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!Objects.equals(attributes.fileKey(), fileKey) || attributes.size() < offset) {
+                // Compacted or invalidated by another process
+                clear(attributes.fileKey());
+            }
+
+            if (attributes.size() == offset) {
+                return;
+            }
+
+            final ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(attributes.size() - offset));
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) > 0) {
+                    // Reads up to the size seen above: anything appended since is read next time
+                }
+            }
+
+            read(buffer.array(), buffer.position());
+        } catch (IOException | ArithmeticException e) {
+            System.err.printf("Unable to read the answer cache at %s: %s%n", path, e.getMessage());
+        }
+    }
+
+    private void read(byte[] content, int length) {
+        final long now = System.currentTimeMillis();
+        int unreadable = 0;
+
+        int start = 0;
+        for (int end = 0; end < length; end++) {
+            if (content[end] != '\n') {
+                continue;
+            }
+
+            if (end > start) {
+                try {
+                    final Entry entry = MAPPER.readValue(content, start, end - start, Entry.class);
+                    if (!isExpired(entry, now)) {
+                        entries.add(entry);
+                    }
+                } catch (IOException e) {
+                    // A damaged line only costs a generation
+                    unreadable++;
+                }
+            }
+
+            start = end + 1;
+            lines++;
+        }
+
+        // A partial last line is still being written: it is read next time
+        offset += start;
+
+        if (unreadable > 0) {
+            System.err.printf("Ignoring %d unreadable answers in the cache at %s%n", unreadable, path);
+        }
+    }
+
+    private void clear(Object newFileKey) {
+        entries.clear();
+        fileKey = newFileKey;
+        offset = 0;
+        lines = 0;
+    }
+
+    private void append(Entry entry) throws IOException {
+        final Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        // A single write in append mode, so that the lines of concurrent processes are not interleaved
+        final String json = MAPPER.writeValueAsString(entry) + "\n";
+        final ByteBuffer line = ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+        }
+    }
+
+    /**
+     * Rewrites the cache file with the current entries only
+     */
+    private void compact() {
+        try {
+            final StringBuilder content = new StringBuilder();
+            for (Entry entry : entries) {
+                content.append(MAPPER.writeValueAsString(entry)).append('\n');
+            }
+
+            // Replaced atomically, so that a concurrent reader never sees a partial file
+            final Path tmp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(),
+                    ".tmp");
+            Files.writeString(tmp, content);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            fileKey = attributes.fileKey();
+            offset = attributes.size();
+            lines = entries.size();
+        } catch (IOException e) {
+            System.err.printf("Unable to compact the answer cache at %s: %s%n", path, e.getMessage());
+        }
+    }
+
+    private static byte[] toBytes(float[] vector) {
+        final ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    private static float[] toVector(byte[] bytes) {
+        final float[] vector = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).asFloatBuffer().get(vector);
+        return vector;
+    }
+}
@@ -0,0 +1,86 @@
+package org.apache.camel.jbang.ai.util.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+/**
+ * An embedding model that consults an {@link EmbeddingCache} before calling the actual model. The actual model is
+ * only created when there is a cache miss, so a fully cached run never pays for loading it.
+ */
+public final class CachedEmbeddingModel implements EmbeddingModel {
+    private final Supplier<EmbeddingModel> modelSupplier;
+    private final EmbeddingCache cache;
+    private volatile EmbeddingModel model;
+
+    /**
+     * Constructor
+     * @param modelSupplier creates the actual embedding model on first use
+     * @param cache the cache to use. If null, every call goes to the model.
+     */
+    public CachedEmbeddingModel(Supplier<EmbeddingModel> modelSupplier, EmbeddingCache cache) {
+        this.modelSupplier = modelSupplier;
+        this.cache = cache;
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        if (cache == null) {
+            return model().embedAll(textSegments);
+        }
+
+        final Embedding[] embeddings = new Embedding[textSegments.size()];
+        final List<Integer> missingPositions = new ArrayList<>();
+        final List<TextSegment> missing = new ArrayList<>();
+
+        for (int i = 0; i < embeddings.length; i++) {
+            final float[] vector = cache.get(textSegments.get(i).text());
+            if (vector != null) {
+                embeddings[i] = Embedding.from(vector);
+            } else {
+                missingPositions.add(i);
+                missing.add(textSegments.get(i));
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            final List<Embedding> computed = model().embedAll(missing).content();
+            for (int i = 0; i < computed.size(); i++) {
+                final Embedding embedding = computed.get(i);
+
+                embeddings[missingPositions.get(i)] = embedding;
+                cache.put(missing.get(i).text(), embedding.vector());
+            }
+        }
+
+        return Response.from(List.of(embeddings));
+    }
+
+    /**
+     * Creates the actual model now instead of on the first cache miss, so that long-running processes do not make
+     * the first request pay for loading it
+     */
+    public void warmUp() {
+        model();
+    }
+
+    private EmbeddingModel model() {
+        EmbeddingModel current = model;
+        if (current == null) {
+            synchronized (this) {
+                current = model;
+                if (current == null) {
+                    current = modelSupplier.get();
+                    model = current;
+                }
+            }
+        }
+
+        return current;
+    }
+}
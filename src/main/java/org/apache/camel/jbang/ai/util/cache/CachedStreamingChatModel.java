@@ -0,0 +1,79 @@
+package org.apache.camel.jbang.ai.util.cache;
+
+import java.util.List;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.Response;
+
+/**
+ * A streaming chat model that consults a {@link ResponseCache} before calling the actual model. A cached response is
+ * streamed back as a single token. Only the complete responses are cached: not the failed or truncated ones.
+ */
+public final class CachedStreamingChatModel implements StreamingChatLanguageModel {
+    private final StreamingChatLanguageModel model;
+    private final String settings;
+    private final ResponseCache cache;
+
+    /**
+     * Constructor
+     * @param model the actual model
+     * @param settings describes the settings of the model that change its responses (see
+     *                 {@link org.apache.camel.jbang.ai.util.ModelUtil})
+     * @param cache the cache to use
+     */
+    public CachedStreamingChatModel(StreamingChatLanguageModel model, String settings, ResponseCache cache) {
+        this.model = model;
+        this.settings = settings;
+        this.cache = cache;
+    }
+
+    /**
+     * Gets the cached response to the messages, without calling the model
+     * @return the response or null if not cached
+     */
+    public String cachedResponse(List<ChatMessage> messages) {
+        return cache.get(settings, ChatMessageSerializer.messagesToJson(messages));
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+        final String serialized = ChatMessageSerializer.messagesToJson(messages);
+
+        final String cached = cache.get(settings, serialized);
+        if (cached != null) {
+            handler.onNext(cached);
+            handler.onComplete(Response.from(AiMessage.from(cached), null, FinishReason.STOP));
+            return;
+        }
+
+        model.generate(messages, new StreamingResponseHandler<>() {
+            @Override
+            public void onNext(String token) {
+                handler.onNext(token);
+            }
+
+            @Override
+            public void onComplete(Response<AiMessage> response) {
+                if (isComplete(response)) {
+                    cache.put(settings, serialized, response.content().text());
+                }
+                handler.onComplete(response);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                handler.onError(error);
+            }
+        });
+    }
+
+    private static boolean isComplete(Response<AiMessage> response) {
+        return response != null && response.content() != null && response.content().text() != null
+                && !response.content().text().isBlank() && response.finishReason() != FinishReason.LENGTH;
+    }
+}
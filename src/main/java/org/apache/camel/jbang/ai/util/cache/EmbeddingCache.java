@@ -0,0 +1,302 @@
+package org.apache.camel.jbang.ai.util.cache;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A persistent cache of embeddings keyed by the hash of the embedded text.
+ * <p>
+ * The cache is a memory-mapped file made of a small header followed by fixed-size slots. The key of each slot, the
+ * first 128 bits of the SHA-256 of the text, is stored in a contiguous region ahead of the embedding vectors, so that
+ * the in-memory hash index is rebuilt in a single read of the keys when the file is opened, without touching the
+ * vectors. When the cache is full, slots are reclaimed using the CLOCK (second chance) policy.
+ * <p>
+ * Only one process can use the cache file at a time: if it is locked by another process, {@link #open} returns null
+ * and callers are expected to go straight to the embedding model.
+ */
+public final class EmbeddingCache implements AutoCloseable {
+    public static final Path DEFAULT_FILE = Path.of(System.getProperty("user.home"), ".camel", "explain",
+            "embeddings-all-minilm-l6-v2.cache");
+    public static final int DEFAULT_CAPACITY = 100_000;
+    public static final int DEFAULT_DIMENSION = 384;
+
+    private static final int MAGIC = 0x43454D42;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+    private static final int KEY_SIZE = 16;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int DIMENSION_OFFSET = 8;
+    private static final int CAPACITY_OFFSET = 12;
+    private static final int HAND_OFFSET = 16;
+
+    private record Key(long high, long low) {
+        boolean isEmpty() {
+            return high == 0 && low == 0;
+        }
+    }
+
+    private final int dimension;
+    private final int capacity;
+    private final int vectorSize;
+    private final RandomAccessFile file;
+    private final FileLock lock;
+    private final MappedByteBuffer buffer;
+    private final Map<Key, Integer> index = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final boolean[] referenced;
+
+    private EmbeddingCache(int dimension, int capacity, RandomAccessFile file, FileLock lock, MappedByteBuffer buffer) {
+        this.dimension = dimension;
+        this.capacity = capacity;
+        this.vectorSize = dimension * Float.BYTES;
+        this.file = file;
+        this.lock = lock;
+        this.buffer = buffer;
+        this.referenced = new boolean[capacity];
+
+        final long[] keys = new long[capacity * 2];
+        buffer.slice(HEADER_SIZE, capacity * KEY_SIZE).asLongBuffer().get(keys);
+        for (int slot = 0; slot < capacity; slot++) {
+            final Key key = new Key(keys[slot * 2], keys[slot * 2 + 1]);
+            if (key.isEmpty()) {
+                freeSlots.add(slot);
+            } else {
+                index.put(key, slot);
+            }
+        }
+    }
+
+    /**
+     * Opens the cache file, creating it if needed
+     * @param path the cache file
+     * @param dimension the dimension of the embedding vectors
+     * @param capacity the maximum number of embeddings to keep. If zero or negative, reuses the capacity of an
+     *                 existing file or uses the {@link #DEFAULT_CAPACITY} for a new one. If the file exists but
+     *                 was created with a different capacity or dimension, it is discarded.
+     * @return the cache, or null if it could not be opened (i.e.: it is being used by another process)
+     */
+    public static EmbeddingCache open(Path path, int dimension, int capacity) {
+        try {
+            final Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+
+            final RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw");
+            final FileLock lock = tryLock(file.getChannel());
+            if (lock == null) {
+                file.close();
+                return null;
+            }
+
+            try {
+                final int existingCapacity = existingCapacity(file, dimension);
+                final int effectiveCapacity = capacity > 0 ? capacity
+                        : existingCapacity > 0 ? existingCapacity : DEFAULT_CAPACITY;
+                final long size = HEADER_SIZE + (long) slotSize(dimension) * effectiveCapacity;
+                if (size > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException(
+                            "The embedding cache capacity is too large: " + effectiveCapacity);
+                }
+
+                final boolean fresh = existingCapacity != effectiveCapacity || file.length() != size;
+                if (fresh) {
+                    // Truncate first, so that no stale slot survives from a file with a different layout
+                    file.setLength(0);
+                    file.setLength(size);
+                }
+
+                final MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+                if (fresh) {
+                    buffer.putInt(MAGIC_OFFSET, MAGIC);
+                    buffer.putInt(VERSION_OFFSET, VERSION);
+                    buffer.putInt(DIMENSION_OFFSET, dimension);
+                    buffer.putInt(CAPACITY_OFFSET, effectiveCapacity);
+                    buffer.putInt(HAND_OFFSET, 0);
+                }
+
+                return new EmbeddingCache(dimension, effectiveCapacity, file, lock, buffer);
+            } catch (IOException | RuntimeException e) {
+                // Closing the file releases its lock too
+                file.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            System.err.printf("Unable to open the embedding cache at %s: %s%n", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Opens the default cache file for the all-minilm-l6-v2 embeddings
+     * @param capacity the maximum number of embeddings to keep (see {@link #open(Path, int, int)})
+     * @return the cache, or null if it could not be opened
+     */
+    public static EmbeddingCache openDefault(int capacity) {
+        return open(DEFAULT_FILE, DEFAULT_DIMENSION, capacity);
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Already open in this JVM
+            return null;
+        }
+    }
+
+    /*
+     * Reads the capacity of an existing cache file, or returns -1 if there is no usable cache in the file
+     */
+    private static int existingCapacity(RandomAccessFile file, int dimension) throws IOException {
+        if (file.length() < HEADER_SIZE) {
+            return -1;
+        }
+
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        file.getChannel().read(header, 0);
+
+        final boolean compatible = header.getInt(MAGIC_OFFSET) == MAGIC
+                && header.getInt(VERSION_OFFSET) == VERSION
+                && header.getInt(DIMENSION_OFFSET) == dimension;
+
+        return compatible ? header.getInt(CAPACITY_OFFSET) : -1;
+    }
+
+    private static int slotSize(int dimension) {
+        return KEY_SIZE + dimension * Float.BYTES;
+    }
+
+    /**
+     * Gets the embedding vector for the given text
+     * @param text the text
+     * @return the vector or null if not cached
+     */
+    public synchronized float[] get(String text) {
+        final Integer slot = index.get(keyOf(text));
+        if (slot == null) {
+            return null;
+        }
+
+        referenced[slot] = true;
+
+        final int offset = vectorOffset(slot);
+        final float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = buffer.getFloat(offset + i * Float.BYTES);
+        }
+
+        return vector;
+    }
+
+    /**
+     * Stores the embedding vector for the given text, evicting an older entry if the cache is full
+     * @param text the text
+     * @param vector the embedding vector
+     */
+    public synchronized void put(String text, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected a vector of dimension " + dimension + " but got " + vector.length);
+        }
+
+        final Key key = keyOf(text);
+        if (index.containsKey(key)) {
+            return;
+        }
+
+        final int slot = freeSlots.isEmpty() ? evict() : freeSlots.poll();
+
+        // Clear the key before overwriting the vector, so that a crash never leaves a key pointing to a partial vector
+        writeKey(slot, new Key(0, 0));
+
+        final int offset = vectorOffset(slot);
+        for (int i = 0; i < dimension; i++) {
+            buffer.putFloat(offset + i * Float.BYTES, vector[i]);
+        }
+
+        writeKey(slot, key);
+        index.put(key, slot);
+        referenced[slot] = false;
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    private int evict() {
+        int hand = buffer.getInt(HAND_OFFSET);
+        while (referenced[hand]) {
+            referenced[hand] = false;
+            hand = (hand + 1) % capacity;
+        }
+
+        index.remove(readKey(hand));
+        buffer.putInt(HAND_OFFSET, (hand + 1) % capacity);
+        return hand;
+    }
+
+    private int keyOffset(int slot) {
+        return HEADER_SIZE + slot * KEY_SIZE;
+    }
+
+    private int vectorOffset(int slot) {
+        return HEADER_SIZE + capacity * KEY_SIZE + slot * vectorSize;
+    }
+
+    private Key readKey(int slot) {
+        final int offset = keyOffset(slot);
+
+        return new Key(buffer.getLong(offset), buffer.getLong(offset + Long.BYTES));
+    }
+
+    private void writeKey(int slot, Key key) {
+        final int offset = keyOffset(slot);
+
+        buffer.putLong(offset, key.high());
+        buffer.putLong(offset + Long.BYTES, key.low());
+    }
+
+    private static Key keyOf(String text) {
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            final ByteBuffer wrapped = ByteBuffer.wrap(hash);
+            final Key key = new Key(wrapped.getLong(), wrapped.getLong());
+
+            // The all-zero key marks empty slots
+            return key.isEmpty() ? new Key(0, 1) : key;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            buffer.force();
+            lock.release();
+            file.close();
+        } catch (IOException e) {
+            System.err.printf("Unable to close the embedding cache: %s%n", e.getMessage());
+        }
+    }
+}
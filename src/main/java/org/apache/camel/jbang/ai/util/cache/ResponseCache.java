@@ -0,0 +1,172 @@
+package org.apache.camel.jbang.ai.util.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * A persistent cache of the responses of the LLM API, keyed by the SHA-256 of the model settings and the messages.
+ * <p>
+ * Each response is a file of the cache directory, named after its key. The files are written to a temporary file
+ * first and then moved, so that a crash never leaves a partial response. When the cache grows past its maximum size,
+ * the least recently used responses are evicted: the modification time of a file is updated when it is read, so the
+ * order survives restarts.
+ */
+public final class ResponseCache {
+    public static final Path DEFAULT_DIRECTORY = Path.of(System.getProperty("user.home"), ".camel", "explain",
+            "responses");
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final long maxBytes;
+    // The size of each response, least recently used first
+    private final Map<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private ResponseCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Opens the cache directory, creating it if needed
+     * @param directory the cache directory
+     * @param maxBytes how many bytes of responses to keep at most
+     * @return the cache, or null if it could not be opened
+     */
+    public static ResponseCache open(Path directory, long maxBytes) {
+        final ResponseCache cache = new ResponseCache(directory, maxBytes);
+
+        try {
+            Files.createDirectories(directory);
+
+            final List<Path> files = new ArrayList<>();
+            try (Stream<Path> stream = Files.list(directory)) {
+                stream.filter(Files::isRegularFile).forEach(files::add);
+            }
+
+            final Map<Path, FileTime> lastUse = new LinkedHashMap<>();
+            for (Path file : files) {
+                if (file.getFileName().toString().endsWith(TEMPORARY_SUFFIX)) {
+                    // Left by a crash
+                    Files.deleteIfExists(file);
+                } else {
+                    lastUse.put(file, Files.getLastModifiedTime(file));
+                }
+            }
+
+            final List<Path> byLastUse = new ArrayList<>(lastUse.keySet());
+            byLastUse.sort(Comparator.comparing(lastUse::get));
+            for (Path file : byLastUse) {
+                final long size = Files.size(file);
+                cache.index.put(file.getFileName().toString(), size);
+                cache.totalBytes += size;
+            }
+
+            cache.evict();
+            return cache;
+        } catch (IOException e) {
+            System.err.printf("Unable to open the response cache at %s: %s%n", directory, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Gets a response
+     * @param settings the settings of the model (see {@link org.apache.camel.jbang.ai.util.ModelUtil})
+     * @param messages the messages sent to the model, serialized
+     * @return the response or null if not cached
+     */
+    public synchronized String get(String settings, String messages) {
+        final String key = keyOf(settings, messages);
+        // Unlike containsKey, get marks the response as the most recently used
+        if (index.get(key) == null) {
+            return null;
+        }
+
+        final Path file = directory.resolve(key);
+        try {
+            final String response = Files.readString(file, StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return response;
+        } catch (IOException e) {
+            // Removed behind our back
+            totalBytes -= index.remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * Stores a response, evicting the least recently used ones if the cache is full
+     * @param settings the settings of the model
+     * @param messages the messages sent to the model, serialized
+     * @param response the response
+     */
+    public synchronized void put(String settings, String messages, String response) {
+        final String key = keyOf(settings, messages);
+        if (index.containsKey(key)) {
+            return;
+        }
+
+        final byte[] content = response.getBytes(StandardCharsets.UTF_8);
+        final Path file = directory.resolve(key);
+        final Path temporary = directory.resolve(key + TEMPORARY_SUFFIX);
+        try {
+            Files.write(temporary, content);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.printf("Unable to cache a response in %s: %s%n", directory, e.getMessage());
+            return;
+        }
+
+        index.put(key, (long) content.length);
+        totalBytes += content.length;
+        evict();
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    private void evict() {
+        final Iterator<Map.Entry<String, Long>> iterator = index.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            final Map.Entry<String, Long> eldest = iterator.next();
+            try {
+                Files.deleteIfExists(directory.resolve(eldest.getKey()));
+            } catch (IOException e) {
+                System.err.printf("Unable to evict a response from %s: %s%n", directory, e.getMessage());
+            }
+
+            totalBytes -= eldest.getValue();
+            iterator.remove();
+        }
+    }
+
+    private static String keyOf(String settings, String messages) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(settings.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(messages.getBytes(StandardCharsets.UTF_8));
+
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -9,6 +9,10 @@ import dev.langchain4j.model.output.Response;
 public class BufferedStreamingResponseHandler implements StreamingResponseHandler<AiMessage> {
     private final CountDownLatch latch;
     private StringBuffer responseBuffer = new StringBuffer();
+    private volatile Throwable error;
+    private volatile long firstTokenTime;
+    private boolean done;
+    private Runnable onDone;
 
     public BufferedStreamingResponseHandler(CountDownLatch latch) {
         this.latch = latch;
@@ -16,12 +20,17 @@ public class BufferedStreamingResponseHandler implements StreamingResponseHandle
 
     @Override
     public void onNext(String s) {
+        if (firstTokenTime == 0) {
+            firstTokenTime = System.nanoTime();
+        }
         responseBuffer.append(s);
     }
 
     @Override
     public void onError(Throwable throwable) {
+        error = throwable;
         latch.countDown();
+        done();
     }
 
     @Override
@@ -30,10 +39,50 @@ public class BufferedStreamingResponseHandler implements StreamingResponseHandle
             StreamingResponseHandler.super.onComplete(response);
         } finally {
             latch.countDown();
+            done();
+        }
+    }
+
+    /**
+     * Runs an action once the response completes or fails, or right away if it already did
+     */
+    public void whenDone(Runnable action) {
+        synchronized (this) {
+            if (!done) {
+                onDone = action;
+                return;
+            }
+        }
+        action.run();
+    }
+
+    private void done() {
+        final Runnable action;
+        synchronized (this) {
+            done = true;
+            action = onDone;
+            onDone = null;
+        }
+        if (action != null) {
+            action.run();
         }
     }
 
     public String getResponse() {
         return responseBuffer.toString();
     }
+
+    /**
+     * @return the error reported by the API or null if there was none
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * @return when the first token was received (as in {@link System#nanoTime()}) or 0 if none was
+     */
+    public long getFirstTokenTime() {
+        return firstTokenTime;
+    }
 }
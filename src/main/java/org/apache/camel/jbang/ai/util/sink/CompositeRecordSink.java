@@ -0,0 +1,43 @@
+package org.apache.camel.jbang.ai.util.sink;
+
+import java.util.List;
+
+import org.apache.camel.jbang.ai.types.AlpacaRecord;
+
+/**
+ * Writes the records to several sinks
+ */
+public final class CompositeRecordSink implements RecordSink {
+    private final List<RecordSink> sinks;
+
+    public CompositeRecordSink(RecordSink... sinks) {
+        this.sinks = List.of(sinks);
+    }
+
+    @Override
+    public void write(AlpacaRecord alpacaRecord) {
+        for (RecordSink sink : sinks) {
+            sink.write(alpacaRecord);
+        }
+    }
+
+    @Override
+    public void close() {
+        RuntimeException failure = null;
+        for (RecordSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
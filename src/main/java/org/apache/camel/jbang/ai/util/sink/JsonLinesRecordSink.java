@@ -0,0 +1,62 @@
+package org.apache.camel.jbang.ai.util.sink;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.camel.jbang.ai.types.AlpacaRecord;
+
+/**
+ * Writes the records as JSON Lines: one JSON object per line. Each line is flushed as soon as it is written, so an
+ * interrupted run leaves the records written so far. The file is only created with the first record.
+ */
+public final class JsonLinesRecordSink implements RecordSink {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Path path;
+    private BufferedWriter writer;
+
+    /**
+     * Constructor
+     * @param path the file to write (replaced if it exists)
+     */
+    public JsonLinesRecordSink(Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public void write(AlpacaRecord alpacaRecord) {
+        try {
+            if (writer == null) {
+                if (path.getParent() != null) {
+                    Files.createDirectories(path.getParent());
+                }
+                writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+            }
+
+            writer.write(MAPPER.writeValueAsString(alpacaRecord));
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write to the JSON Lines file " + path, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (writer == null) {
+            return;
+        }
+
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to close the JSON Lines file " + path, e);
+        } finally {
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.apache.camel.jbang.ai.util.sink;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.camel.jbang.ai.types.AlpacaRecord;
+import org.apache.camel.jbang.ai.util.ParquetUtil;
+import org.apache.parquet.avro.AvroParquetWriter;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.io.LocalOutputFile;
+
+/**
+ * Writes the records to a Parquet file. The writer only buffers the current row group in memory, and flushes it to the
+ * file when it is full.
+ * <p>
+ * A Parquet file is only readable once its footer is written, on close: the records are written to a temporary file
+ * that replaces the actual one on close, so that an interrupted run never leaves an unreadable file in its place. The
+ * file is only created with the first record.
+ */
+public final class ParquetRecordSink implements RecordSink {
+    public static final long DEFAULT_ROW_GROUP_SIZE = 8 * 1024 * 1024;
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final Path path;
+    private final Path temporary;
+    private final long rowGroupSize;
+    private Schema schema;
+    private ParquetWriter<GenericRecord> writer;
+
+    /**
+     * Constructor
+     * @param path the file to write (replaced if it exists)
+     * @param rowGroupSize how many bytes of records to buffer before flushing a row group
+     */
+    public ParquetRecordSink(Path path, long rowGroupSize) {
+        this.path = path;
+        this.temporary = path.resolveSibling(path.getFileName() + TEMPORARY_SUFFIX);
+        this.rowGroupSize = rowGroupSize;
+    }
+
+    @Override
+    public void write(AlpacaRecord alpacaRecord) {
+        try {
+            if (writer == null) {
+                if (path.getParent() != null) {
+                    Files.createDirectories(path.getParent());
+                }
+
+                schema = ParquetUtil.loadSchema();
+                writer = AvroParquetWriter
+                        .<GenericRecord>builder(new LocalOutputFile(temporary))
+                        .withSchema(schema)
+                        .withRowGroupSize(rowGroupSize)
+                        .withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+                        .build();
+            }
+
+            writer.write(ParquetUtil.toGenericRecord(schema, alpacaRecord));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write Parquet file " + path, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (writer == null) {
+            return;
+        }
+
+        try {
+            writer.close();
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to close Parquet file " + path, e);
+        } finally {
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.apache.camel.jbang.ai.util.sink;
+
+import org.apache.camel.jbang.ai.types.AlpacaRecord;
+
+/**
+ * Where the generated records are written, one at a time as soon as they are produced, so that the records of a
+ * component are never held in memory all at once. The sinks are not thread-safe.
+ */
+public interface RecordSink extends AutoCloseable {
+
+    /**
+     * Writes a record
+     */
+    void write(AlpacaRecord alpacaRecord);
+
+    /**
+     * Completes the output
+     */
+    @Override
+    void close();
+}
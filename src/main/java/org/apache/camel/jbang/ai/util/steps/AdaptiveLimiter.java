@@ -0,0 +1,113 @@
+package org.apache.camel.jbang.ai.util.steps;
+
+/**
+ * Limits the number of requests in flight to the LLM API with AIMD (additive increase, multiplicative decrease),
+ * so that a shared endpoint is used at its real capacity.
+ * <p>
+ * The limit grows by one request for every limit's worth of healthy responses, and is halved when the endpoint is
+ * overloaded (timeouts, 429 or 503). A response is healthy when its latency stays close to the best latency seen,
+ * which is what the endpoint answers with an empty queue. The latency is the time to the first token, as the time
+ * to the last one mostly depends on the length of the response.
+ */
+public final class AdaptiveLimiter {
+    private static final double BACKOFF_RATIO = 0.5;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    // The baseline latency slowly drifts up, so that a single fast response does not stop the growth forever
+    private static final double BASELINE_DRIFT = 1.01;
+
+    private final int maxLimit;
+    private double limit;
+    private int inFlight;
+    private long baselineLatency = Long.MAX_VALUE;
+    private long lastBackoff = Long.MIN_VALUE;
+
+    /**
+     * Constructor
+     * @param initialLimit how many requests can be in flight at first
+     * @param maxLimit how many requests can be in flight at most
+     */
+    public AdaptiveLimiter(int initialLimit, int maxLimit) {
+        if (initialLimit < 1 || maxLimit < initialLimit) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid limits: %d initially, %d at most", initialLimit, maxLimit));
+        }
+
+        this.limit = initialLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Waits until a request can be sent
+     * @return when the request was allowed (to pass back when it completes)
+     */
+    public synchronized long acquire() throws InterruptedException {
+        while (inFlight >= (int) limit) {
+            wait();
+        }
+
+        inFlight++;
+        return System.nanoTime();
+    }
+
+    /**
+     * Records a successful request
+     * @param latency the latency of the response, in nanoseconds
+     */
+    public synchronized void onSuccess(long latency) {
+        // Only grow if the limit was actually reached, otherwise it says nothing about the capacity
+        final boolean saturated = inFlight >= (int) limit;
+        inFlight--;
+
+        baselineLatency = Math.min(latency, baselineLatency == Long.MAX_VALUE
+                ? latency : (long) (baselineLatency * BASELINE_DRIFT));
+        if (saturated && latency <= LATENCY_TOLERANCE * baselineLatency) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+
+        notifyAll();
+    }
+
+    /**
+     * Records a request that failed because the endpoint is overloaded
+     * @param start when the request was allowed
+     */
+    public synchronized void onOverload(long start) {
+        backOff(start);
+        inFlight--;
+
+        notifyAll();
+    }
+
+    /**
+     * Lowers the limit because the endpoint is overloaded, without ending the request: a request that cannot be
+     * cancelled is still in flight until it ends (see {@link #onFailure()})
+     * @param start when the request was allowed
+     */
+    public synchronized void backOff(long start) {
+        // The requests sent before the last backoff were sent with the previous limit: they must not lower it again
+        if (start > lastBackoff) {
+            final int previous = (int) limit;
+            limit = Math.max(1, limit * BACKOFF_RATIO);
+            lastBackoff = System.nanoTime();
+
+            System.out.printf("The LLM API is overloaded, reducing the requests in flight from %d to %d%n",
+                    previous, (int) limit);
+        }
+    }
+
+    /**
+     * Records a request that failed for another reason than the load of the endpoint
+     */
+    public synchronized void onFailure() {
+        inFlight--;
+
+        notifyAll();
+    }
+
+    /**
+     * @return how many requests can currently be in flight
+     */
+    public synchronized int limit() {
+        return (int) limit;
+    }
+}
@@ -1,18 +1,47 @@
 package org.apache.camel.jbang.ai.util.steps;
 
+import java.io.InterruptedIOException;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
+import dev.ai4j.openai4j.OpenAiHttpException;
 import dev.langchain4j.data.message.UserMessage;
-import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import org.apache.camel.jbang.ai.util.cache.CachedStreamingChatModel;
 import org.apache.camel.jbang.ai.util.handlers.BufferedStreamingResponseHandler;
 
 /**
  * Control the chain-of-though interaction with the LLM API
  */
 public class Steps {
+    private static final long TIMEOUT_SECONDS = 120;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MILLIS = 2000;
+
+    /**
+     * A failed call to the LLM API
+     */
+    public static class ChatException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final boolean overload;
+
+        public ChatException(String message, boolean overload, Throwable cause) {
+            super(message, cause);
+            this.overload = overload;
+        }
+
+        /**
+         * @return true if the call failed because the API is overloaded (and is worth retrying)
+         */
+        public boolean isOverload() {
+            return overload;
+        }
+    }
+
     /**
      * A unit of conversation is its user message and the response from the LLM API
      */
@@ -93,7 +122,8 @@ public class Steps {
     }
 
     private ChatMeta chatMeta;
-    private OpenAiStreamingChatModel chatModel;
+    private StreamingChatLanguageModel chatModel;
+    private AdaptiveLimiter limiter;
 
     public static final class ChatStep {
         public Steps chat(Consumer<ChatMeta> consumer) {
@@ -107,16 +137,25 @@ public class Steps {
             return new Steps(new ChatMeta());
         }
 
-        public static Steps using(OpenAiStreamingChatModel chatModel) {
+        public static Steps using(StreamingChatLanguageModel chatModel) {
             return new Steps(chatModel, new ChatMeta());
         }
+
+        /**
+         * Chats using a limiter shared with other chats, which controls how many calls are in flight at once
+         */
+        public static Steps using(StreamingChatLanguageModel chatModel, AdaptiveLimiter limiter) {
+            final Steps steps = new Steps(chatModel, new ChatMeta());
+            steps.limiter = limiter;
+            return steps;
+        }
     }
 
     public Steps(ChatMeta lastInputMeta) {
         this.chatMeta = lastInputMeta;
     }
 
-    public Steps(OpenAiStreamingChatModel model, ChatMeta lastInputMeta) {
+    public Steps(StreamingChatLanguageModel model, ChatMeta lastInputMeta) {
         this.chatModel = model;
         this.chatMeta = lastInputMeta;
     }
@@ -160,7 +199,8 @@ public class Steps {
     }
 
     /**
-     * Calls the LLM API
+     * Calls the LLM API. The calls failing because the API is overloaded are retried. If the call still fails, the
+     * exception is set in the chat metadata along with whatever was received of the response.
      * @return
      */
     public Steps chat() {
@@ -171,24 +211,139 @@ public class Steps {
             return this;
         }
 
+        // Cached responses do not count against the limiter: they would make the API look much faster than it is
+        if (chatModel instanceof CachedStreamingChatModel cachedChatModel) {
+            final String cached = cachedChatModel.cachedResponse(List.of(userMessage));
+            if (cached != null) {
+                chatMeta.conversationUnit.setResponse(cached);
+                return this;
+            }
+        }
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            final BufferedStreamingResponseHandler handler;
+            try {
+                handler = call(userMessage);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                chatMeta.setException(e);
+                return this;
+            } catch (ChatException e) {
+                if (e.isOverload() && attempt < MAX_ATTEMPTS && sleep(RETRY_DELAY_MILLIS << (attempt - 1))) {
+                    continue;
+                }
+
+                System.out.printf("Calling the LLM failed after %d attempt(s): %s%n", attempt, e.getMessage());
+                chatMeta.setException(e);
+                return this;
+            }
+
+            chatMeta.conversationUnit.setResponse(handler.getResponse());
+            return this;
+        }
+
+        return this;
+    }
+
+    private BufferedStreamingResponseHandler call(UserMessage userMessage) throws InterruptedException {
+        final long start = limiter != null ? limiter.acquire() : System.nanoTime();
+
         CountDownLatch latch = new CountDownLatch(1);
 
         BufferedStreamingResponseHandler handler = new BufferedStreamingResponseHandler(latch);
-        chatModel.generate(userMessage, handler);
         try {
-            if (!latch.await(2, TimeUnit.MINUTES)) {
-                System.out.println("Calling the LLM took too long, response might be incomplete.");
+            chatModel.generate(userMessage, handler);
+        } catch (RuntimeException e) {
+            if (limiter != null) {
+                limiter.onFailure();
             }
+            throw e;
+        }
+
+        final boolean completed;
+        try {
+            // A request waiting in the queue of the endpoint is still healthy: there is no separate deadline for
+            // the first token
+            completed = latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
         } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+            abandon(handler);
+            throw e;
+        }
 
-            // call abort
-            return this;
+        ChatException failure = null;
+        if (!completed) {
+            if (limiter != null) {
+                limiter.backOff(start);
+            }
+            abandon(handler);
+            // Not retried: the abandoned request is still running on the endpoint
+            failure = new ChatException("Calling the LLM took too long", false, null);
+        } else if (handler.getError() != null) {
+            failure = toChatException(handler.getError());
+        } else if (handler.getResponse().isBlank()) {
+            failure = new ChatException("The LLM returned an empty response", false, null);
         }
 
-        String response = handler.getResponse();
-        chatMeta.conversationUnit.setResponse(response);
-        return this;
+        if (failure != null) {
+            // Partial responses are still available to the callers that can make do with them
+            chatMeta.conversationUnit.setResponse(handler.getResponse());
+            if (limiter != null && completed) {
+                if (failure.isOverload()) {
+                    limiter.onOverload(start);
+                } else {
+                    limiter.onFailure();
+                }
+            }
+            throw failure;
+        }
+
+        if (limiter != null) {
+            final long end = handler.getFirstTokenTime() != 0 ? handler.getFirstTokenTime() : System.nanoTime();
+            limiter.onSuccess(end - start);
+        }
+        return handler;
+    }
+
+    /**
+     * Gives up on a request. The stream cannot be cancelled, so it keeps running on the endpoint and keeps its slot in
+     * the limiter until it ends: the model reports the end of every request, and the HTTP client gives up on the ones
+     * that stall after its timeout.
+     */
+    private void abandon(BufferedStreamingResponseHandler handler) {
+        if (limiter == null) {
+            return;
+        }
+
+        handler.whenDone(limiter::onFailure);
+    }
+
+    private static ChatException toChatException(Throwable error) {
+        Throwable cause = error;
+        while (cause != null) {
+            if (cause instanceof OpenAiHttpException httpException) {
+                final int code = httpException.code();
+                return new ChatException("The LLM API responded with HTTP " + code, code == 429 || code == 503,
+                        error);
+            }
+            if (cause instanceof InterruptedIOException) {
+                // Includes the socket timeouts
+                return new ChatException("Calling the LLM timed out", true, error);
+            }
+            cause = cause.getCause();
+        }
+
+        return new ChatException("Calling the LLM failed: " + error.getMessage(), false, error);
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 
 }
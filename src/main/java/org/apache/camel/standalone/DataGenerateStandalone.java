@@ -26,9 +26,31 @@ public class DataGenerateStandalone implements Callable<Integer> {
             arity = "0..1", defaultValue = "0", required = true)
     private int startFrom;
 
+    @CommandLine.Option(names = {"--concurrency"}, description = "How many options are sent to the model at once (the records are saved in the same order regardless)",
+            arity = "0..1", defaultValue = "1")
+    private int concurrency;
+
+    @CommandLine.Option(names = {"--adaptive-concurrency"}, description = "Adapt the number of requests in flight, up to the concurrency, to the latency and the errors (timeouts, 429 and 503) of the API",
+            arity = "0..1", defaultValue = "true")
+    private boolean adaptiveConcurrency;
+
+    @CommandLine.Option(names = {"--batch-size"}, description = "How many options of a component to generate the records of in a single request, replying in JSON (1 to use a request for the question and another one for the answer of each option)",
+            arity = "0..1", defaultValue = "1")
+    private int batchSize;
+
+    @CommandLine.Option(names = {"--journal"}, description = "Journal the generated options in ~/.camel/explain/generate-<data type>.jsonl and skip the ones already journaled, to resume an interrupted run. The journal is discarded when the model or the prompts change, and deleted once the run completes",
+            arity = "0..1", defaultValue = "true")
+    private boolean journal;
+
+    @CommandLine.Option(names = {"--response-cache-size"}, description = "How many megabytes of LLM responses to cache in ~/.camel/explain/responses, to reuse them when the same prompts are sent again with the same model settings (0 to disable it)",
+            arity = "0..1", defaultValue = "512")
+    private long responseCacheSize;
+
     @Override
     public Integer call() throws Exception {
-        DataServiceClient serviceClient = new DataServiceClient(url, apiKey, modelName, dataType, startFrom);
+        DataServiceClient serviceClient = new DataServiceClient(url, apiKey, modelName, dataType, startFrom,
+                concurrency, adaptiveConcurrency, batchSize, journal,
+                responseCacheSize);
 
         return serviceClient.run();
     }
@@ -3,6 +3,8 @@ package org.apache.camel.standalone;
 import java.util.concurrent.Callable;
 
 import org.apache.camel.jbang.ai.Loader;
+import org.apache.camel.jbang.ai.load.CollectionLayout;
+import org.apache.camel.jbang.ai.store.VectorStoreConfig;
 import picocli.CommandLine;
 
 @CommandLine.Command(name = "load",
@@ -21,12 +23,66 @@ public class LoadStandAlone implements Callable<Integer> {
             "--collection-name" }, description = "The Qdrant collection name", defaultValue = "camel-jbang", arity = "1..1", required = true)
     private String collectionName;
 
+    @CommandLine.Option(names = {
+            "--store" }, description = "Where the embeddings are stored [qdrant, local]", defaultValue = "qdrant", arity = "0..1")
+    private String store;
+
+    @CommandLine.Option(names = {
+            "--store-path" }, description = "The local store directory (defaults to ~/.camel/explain/store/<collection name>)", arity = "0..1")
+    private String storePath;
+
     @CommandLine.Option(names = {
             "--skip-create-collection" }, description = "The Qdrant collection name to create", defaultValue = "false", arity = "0..1")
     private boolean skipCreateCollection;
 
+    @CommandLine.Option(names = {
+            "--batch-size" }, description = "How many options to embed and write to Qdrant at once", defaultValue = "64", arity = "0..1")
+    private int batchSize;
+
+    @CommandLine.Option(names = {
+            "--embed-threads" }, description = "How many threads to use for computing the embeddings (defaults to the number of processors)", arity = "0..1")
+    private int embedThreads = Runtime.getRuntime().availableProcessors();
+
+    @CommandLine.Option(names = {
+            "--writers" }, description = "How many concurrent writers to use for sending the embeddings to Qdrant", defaultValue = "2", arity = "0..1")
+    private int writers;
+
+    @CommandLine.Option(names = {
+            "--max-in-flight" }, description = "How many write requests can be waiting for an acknowledgement from Qdrant", defaultValue = "8", arity = "0..1")
+    private int maxInFlight;
+
+    @CommandLine.Option(names = {
+            "--embedding-cache-size" }, description = "How many embeddings to keep in the local embedding cache (0 to disable it)", defaultValue = "100000", arity = "0..1")
+    private int embeddingCacheSize;
+
+    @CommandLine.Option(names = {
+            "--resume" }, description = "Resume an interrupted load, skipping the components it already completed", defaultValue = "false", arity = "0..1")
+    private boolean resume;
+
+    @CommandLine.Option(names = {
+            "--quantization" }, description = "The quantization to use when creating the collection [none, scalar, binary]", defaultValue = "none", arity = "0..1")
+    private String quantization;
+
+    @CommandLine.Option(names = {
+            "--hnsw-m" }, description = "The number of edges per node in the HNSW index, at least 2 (0 for the Qdrant default)", defaultValue = "0", arity = "0..1")
+    private int hnswM;
+
+    @CommandLine.Option(names = {
+            "--hnsw-ef-construct" }, description = "The number of neighbours to consider when building the HNSW index (0 for the Qdrant default)", defaultValue = "0", arity = "0..1")
+    private int hnswEfConstruct;
+
+    @CommandLine.Option(names = {
+            "--on-disk-vectors" }, description = "Keep the original vectors on disk instead of in RAM", defaultValue = "false", arity = "0..1")
+    private boolean onDiskVectors;
+
+    @CommandLine.Option(names = {
+            "--on-disk-payload" }, description = "Keep the payload on disk instead of in RAM", defaultValue = "false", arity = "0..1")
+    private boolean onDiskPayload;
+
     public Integer call() throws Exception {
-        Loader loader = new Loader(host, port, collectionName, skipCreateCollection);
+        Loader loader = new Loader(new VectorStoreConfig(store, host, port, collectionName, storePath),
+                skipCreateCollection, batchSize, embedThreads, writers, embeddingCacheSize, resume,
+                new CollectionLayout(quantization, hnswM, hnswEfConstruct, onDiskVectors, onDiskPayload), maxInFlight);
 
         return loader.load();
 
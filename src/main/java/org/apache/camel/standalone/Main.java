@@ -20,7 +20,8 @@ public class Main implements Callable<Integer> {
                 .addSubcommand("load", new LoadStandAlone())
                 .addSubcommand("whatis", new WhatIsStandAlone())
                 .addSubcommand("generate", new GenerateStandalone())
-                .addSubcommand("data", new DataStandalone()
+                .addSubcommand("data", new DataStandalone())
+                .addSubcommand("serve", new ServeStandAlone()
 
                 )
                 .execute(args);